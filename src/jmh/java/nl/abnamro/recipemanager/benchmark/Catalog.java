@@ -0,0 +1,67 @@
+package nl.abnamro.recipemanager.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator for synthetic recipe catalogs. Ingredient popularity follows a Zipf distribution, like real recipe
+ * collections where a handful of ingredients (salt, oil, onion) occur in most recipes and the long tail is rare.
+ * Generation is seeded, so every run benchmarks the same catalog.
+ */
+final class Catalog {
+    private final double[] cumulative;
+    private final Random random;
+
+    Catalog(int ingredientCount, double exponent, long seed) {
+        cumulative = new double[ingredientCount];
+        var sum = 0.0;
+        for (int rank = 0; rank < ingredientCount; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < ingredientCount; rank++) {
+            cumulative[rank] /= sum;
+        }
+        random = new Random(seed);
+    }
+
+    /**
+     * Name of the ingredient with the given popularity rank, 0 being the most popular.
+     */
+    static String ingredientName(int rank) {
+        return "ingredient" + rank;
+    }
+
+    /**
+     * Returns the popularity rank of a randomly drawn ingredient.
+     */
+    int sampleRank() {
+        var index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Returns the ranks of {@code count} distinct randomly drawn ingredients.
+     */
+    List<Integer> sampleRanks(int count) {
+        var ranks = new LinkedHashSet<Integer>();
+        while (ranks.size() < Math.min(count, cumulative.length)) {
+            ranks.add(sampleRank());
+        }
+        return List.copyOf(ranks);
+    }
+
+    List<String> sampleIngredients(int count) {
+        return sampleRanks(count).stream().map(Catalog::ingredientName).toList();
+    }
+
+    boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
@@ -0,0 +1,68 @@
+package nl.abnamro.recipemanager.benchmark;
+
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.control.SearchCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures {@link SearchCriteria#filterOnIngredients} per recipe over a Zipfian catalog, with a popular and a
+ * less common included ingredient and a rare excluded one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+    private static final int RECIPE_COUNT = 10_000;
+
+    @Param({"1000"})
+    private int ingredientCount;
+
+    @Param({"8"})
+    private int ingredientsPerRecipe;
+
+    private List<RecipeResponse> recipes;
+    private SearchCriteria searchCriteria;
+
+    @Setup
+    public void setUp() {
+        var catalog = new Catalog(ingredientCount, 1.0, 42);
+        recipes = IntStream.range(0, RECIPE_COUNT).mapToObj(i -> {
+            var recipe = new RecipeResponse();
+            recipe.setId((long) i);
+            recipe.setIngredients(catalog.sampleIngredients(ingredientsPerRecipe));
+            return recipe;
+        }).toList();
+        searchCriteria = new SearchCriteria(null, null, "",
+                List.of(Catalog.ingredientName(0), Catalog.ingredientName(5)), List.of(Catalog.ingredientName(50)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECIPE_COUNT)
+    public long filterOnIngredients() {
+        var matches = 0L;
+        for (var recipe : recipes) {
+            if (searchCriteria.filterOnIngredients(recipe)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
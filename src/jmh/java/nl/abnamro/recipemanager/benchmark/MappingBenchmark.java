@@ -0,0 +1,85 @@
+package nl.abnamro.recipemanager.benchmark;
+
+import nl.abnamro.recipemanager.config.ApplicationConfig;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.control.RecipeMapper;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the reflective {@link ModelMapper} configured in {@link ApplicationConfig} with {@link RecipeMapper}.
+ * Run with the gc profiler (as the jmh profile does) to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+    @Param({"10"})
+    private int ingredientCount;
+
+    private ModelMapper modelMapper;
+    private RecipeMapper recipeMapper;
+    private Recipe recipe;
+    private RecipeRequest recipeRequest;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ApplicationConfig().modelMapper();
+        recipeMapper = new RecipeMapper();
+
+        var ingredientNames = IntStream.range(0, ingredientCount).mapToObj(i -> "ingredient" + i).toList();
+        recipe = new Recipe();
+        recipe.setId(1L);
+        recipe.setVegetarian(true);
+        recipe.setServings(4);
+        recipe.setInstructions("Mix all ingredients and bake for 30 minutes.");
+        recipe.setIngredients(IntStream.range(0, ingredientCount)
+                .mapToObj(i -> new Ingredient((long) i, ingredientNames.get(i)))
+                .toList());
+
+        recipeRequest = new RecipeRequest();
+        recipeRequest.setVegetarian(true);
+        recipeRequest.setServings(4);
+        recipeRequest.setInstructions(recipe.getInstructions());
+        recipeRequest.setIngredients(ingredientNames);
+    }
+
+    @Benchmark
+    public RecipeResponse modelMapperToResponse() {
+        return modelMapper.map(recipe, RecipeResponse.class);
+    }
+
+    @Benchmark
+    public RecipeResponse recipeMapperToResponse() {
+        return recipeMapper.toResponse(recipe);
+    }
+
+    @Benchmark
+    public Recipe modelMapperToRecipe() {
+        return modelMapper.map(recipeRequest, Recipe.class);
+    }
+
+    @Benchmark
+    public Recipe recipeMapperToRecipe() {
+        return recipeMapper.toRecipe(recipeRequest);
+    }
+}
@@ -0,0 +1,149 @@
+package nl.abnamro.recipemanager.benchmark;
+
+import nl.abnamro.recipemanager.RecipemanagerApplication;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.control.InMemoryTextSearch;
+import nl.abnamro.recipemanager.recipes.control.IngredientIndex;
+import nl.abnamro.recipemanager.recipes.control.PantryMatch;
+import nl.abnamro.recipemanager.recipes.control.RecipePage;
+import nl.abnamro.recipemanager.recipes.control.RecipeSearchProjection;
+import nl.abnamro.recipemanager.recipes.control.RecipesService;
+import nl.abnamro.recipemanager.recipes.control.SearchCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures {@link RecipesService#getRecipes}, {@link RecipesService#getCookableRecipes} and
+ * {@link RecipesService#addRecipe} on the application context
+ * backed by an embedded H2 database, seeded with a Zipfian catalog of {@code recipeCount} recipes. Result caches
+ * are disabled, so every search runs. Large catalogs need a large heap; pass e.g.
+ * {@code -Djmh.recipeCounts=1000000} to the jmh profile to include them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+    private static final int INGREDIENT_COUNT = 2000;
+    private static final int INGREDIENTS_PER_RECIPE = 8;
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final int PANTRY_SIZE = 300;
+
+    @Param({"1000", "10000"})
+    private int recipeCount;
+
+    @Param({"INDEX", "DATABASE"})
+    private String ingredientFilter;
+
+    private ConfigurableApplicationContext context;
+    private RecipesService recipesService;
+    private Catalog catalog;
+    private SearchCriteria includedIngredients;
+    private SearchCriteria vegetarianServings;
+    private List<String> pantry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RecipemanagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.cache.type=none",
+                        "--recipes.search.text-index=memory",
+                        "--recipes.search.ingredient-filter=" + ingredientFilter,
+                        "--logging.level.root=warn");
+        recipesService = context.getBean(RecipesService.class);
+        catalog = new Catalog(INGREDIENT_COUNT, 1.0, 42);
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(IngredientIndex.class).rebuild();
+        context.getBean(InMemoryTextSearch.class).rebuild();
+        context.getBean(RecipeSearchProjection.class).backfill();
+
+        includedIngredients = new SearchCriteria(null, null, "",
+                List.of(Catalog.ingredientName(0), Catalog.ingredientName(20)), List.of());
+        vegetarianServings = new SearchCriteria(true, 4, "", List.of(), List.of(Catalog.ingredientName(1)));
+        pantry = IntStream.range(0, PANTRY_SIZE).mapToObj(Catalog::ingredientName).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RecipePage getRecipesIncludedIngredients() {
+        return recipesService.getRecipes(includedIngredients, null, 100);
+    }
+
+    @Benchmark
+    public RecipePage getRecipesVegetarianServings() {
+        return recipesService.getRecipes(vegetarianServings, null, 100);
+    }
+
+    @Benchmark
+    public List<PantryMatch> getCookableRecipes() {
+        return recipesService.getCookableRecipes(pantry, 2, 20);
+    }
+
+    @Benchmark
+    public RecipeResponse addRecipe() {
+        var recipeRequest = new RecipeRequest();
+        recipeRequest.setVegetarian(catalog.nextBoolean());
+        recipeRequest.setServings(1 + catalog.nextInt(8));
+        recipeRequest.setInstructions("Combine everything and cook until done.");
+        recipeRequest.setIngredients(catalog.sampleIngredients(INGREDIENTS_PER_RECIPE));
+        return recipesService.addRecipe(recipeRequest);
+    }
+
+    /**
+     * Inserts the catalog with plain JDBC batches; going through the service would take longer than the benchmark.
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        var ingredients = new ArrayList<Object[]>();
+        for (int rank = 0; rank < INGREDIENT_COUNT; rank++) {
+            ingredients.add(new Object[]{rank + 1L, Catalog.ingredientName(rank)});
+        }
+        jdbcTemplate.batchUpdate("insert into ingredient (id, name) values (?, ?)", ingredients);
+
+        var recipes = new ArrayList<Object[]>(SEED_BATCH_SIZE);
+        var recipeIngredients = new ArrayList<Object[]>(SEED_BATCH_SIZE * INGREDIENTS_PER_RECIPE);
+        for (long id = 1; id <= recipeCount; id++) {
+            recipes.add(new Object[]{id, catalog.nextBoolean(), 1 + catalog.nextInt(8), "Recipe " + id + ": combine everything and cook until done."});
+            for (var rank : catalog.sampleRanks(INGREDIENTS_PER_RECIPE)) {
+                recipeIngredients.add(new Object[]{id, rank + 1L});
+            }
+            if (recipes.size() == SEED_BATCH_SIZE || id == recipeCount) {
+                jdbcTemplate.batchUpdate("insert into recipe (id, is_vegetarian, servings, instructions) values (?, ?, ?, ?)", recipes);
+                jdbcTemplate.batchUpdate("insert into recipe_ingredients (recipe_id, ingredient_id) values (?, ?)", recipeIngredients);
+                recipes.clear();
+                recipeIngredients.clear();
+            }
+        }
+        // pooled ids are handed out below the sequence value, so leave a block of room
+        jdbcTemplate.execute("alter sequence recipe_sequence restart with " + (recipeCount + 100));
+        jdbcTemplate.execute("alter sequence hibernate_sequence restart with " + (INGREDIENT_COUNT + 1));
+    }
+}
@@ -0,0 +1,61 @@
+package nl.abnamro.recipemanager.benchmark;
+
+import nl.abnamro.recipemanager.RecipemanagerApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from starting the application in a fresh JVM until it is ready to serve requests, for the
+ * default profile and for the fast-start {@code prod} profile, both on an empty embedded H2 database. Every fork
+ * measures exactly one cold start.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    @Param({"default", "prod"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext timeToReady() {
+        var args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--server.port=0",
+                "--recipes.search.text-index=memory",
+                "--logging.level.root=warn"));
+        if (profile.equals("prod")) {
+            args.add("--spring.profiles.active=prod");
+        } else {
+            // the test resources shadow application.properties, so its schema update is set here
+            args.add("--spring.jpa.hibernate.ddl-auto=update");
+        }
+        context = new SpringApplicationBuilder(RecipemanagerApplication.class).run(args.toArray(String[]::new));
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+}
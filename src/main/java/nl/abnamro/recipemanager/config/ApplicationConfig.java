@@ -1,13 +1,22 @@
 package nl.abnamro.recipemanager.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.control.RecipePage;
+import nl.abnamro.recipemanager.recipes.control.RecipesService;
 import nl.abnamro.recipemanager.recipes.entity.Ingredient;
 import nl.abnamro.recipemanager.recipes.entity.Recipe;
 import org.modelmapper.Converter;
 import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 
+// caching wraps the transaction, so cache hits do not take a connection from the pool
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 @Configuration
 public class ApplicationConfig {
     @Bean
@@ -20,6 +29,20 @@ public class ApplicationConfig {
         return modelMapper;
     }
 
+    /**
+     * Search result pages are weighed by their number of recipes, so the cache is bounded by what it holds rather
+     * than by its number of entries.
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> searchCacheCustomizer(RecipesProperties recipesProperties) {
+        var searchCache = recipesProperties.getSearchCache();
+        return cacheManager -> cacheManager.registerCustomCache(RecipesService.SEARCH_CACHE, Caffeine.newBuilder()
+                .maximumWeight(searchCache.getMaximumRecipes())
+                .weigher((key, page) -> ((RecipePage) page).getRecipes().size() + 1)
+                .recordStats()
+                .build());
+    }
+
     Converter<Recipe, RecipeResponse> recipeConverter = context -> {
         var recipe = context.getDestination();
         recipe.setIngredients(context.getSource().getIngredients().stream().map(Ingredient::getName).toList());
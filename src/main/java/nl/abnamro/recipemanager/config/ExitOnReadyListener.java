@@ -0,0 +1,20 @@
+package nl.abnamro.recipemanager.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shuts the application down as soon as it is ready when {@code recipes.startup.exit-on-ready} is set. The container
+ * build starts it once this way to record the classes loaded during startup in a class data sharing archive.
+ */
+@Component
+@ConditionalOnProperty("recipes.startup.exit-on-ready")
+public class ExitOnReadyListener implements ApplicationListener<ApplicationReadyEvent> {
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,49 @@
+package nl.abnamro.recipemanager.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary shortly after its own write. Every API request that is not a GET or HEAD sets
+ * a cookie living for the read-your-writes window, and requests carrying it are pinned to the primary.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+    static final String RECENT_WRITE_COOKIE = "recipes-recent-write";
+
+    private final Duration window;
+
+    public ReadYourWritesInterceptor(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        var write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod());
+        if (write) {
+            var cookie = ResponseCookie.from(RECENT_WRITE_COOKIE, "1").path("/api").maxAge(window).httpOnly(true).build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+        if (write || WebUtils.getCookie(request, RECENT_WRITE_COOKIE) != null) {
+            ReplicaRoutingDataSource.pinToPrimary();
+        }
+        return true;
+    }
+
+    // a streamed response continues on another thread, which is not pinned
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.unpin();
+    }
+}
@@ -0,0 +1,198 @@
+package nl.abnamro.recipemanager.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "recipes")
+@Data
+public class RecipesProperties {
+    private Search search = new Search();
+    private Ingredients ingredients = new Ingredients();
+    private BulkImport bulkImport = new BulkImport();
+    private SearchCache searchCache = new SearchCache();
+    private Admission admission = new Admission();
+    private Replica replica = new Replica();
+    private Pantry pantry = new Pantry();
+    private Changes changes = new Changes();
+
+    @Data
+    public static class Search {
+        /**
+         * Where included/excluded ingredients are evaluated. The in-memory index only sees writes made through
+         * this instance, so deployments running several instances against one database should use DATABASE.
+         */
+        private IngredientFilter ingredientFilter = IngredientFilter.INDEX;
+        /**
+         * Page size used when a search request does not specify a limit.
+         */
+        private int defaultPageSize = 100;
+        /**
+         * Upper bound for the limit of a search request.
+         */
+        private int maxPageSize = 1000;
+        /**
+         * Rows fetched per round trip when streaming search results.
+         */
+        private int streamFetchSize = 500;
+        /**
+         * Number of ingredient facets returned when a facet request does not specify a limit.
+         */
+        private int defaultFacetIngredients = 10;
+        /**
+         * Upper bound for the ingredient facet limit of a facet request.
+         */
+        private int maxFacetIngredients = 100;
+        /**
+         * Engine answering full-text searches on the instructions: a GIN index in the (Postgres) database, or an
+         * in-process inverted index for databases without full-text support.
+         */
+        private TextIndex textIndex = TextIndex.MEMORY;
+    }
+
+    @Data
+    public static class Ingredients {
+        /**
+         * Maximum number of ingredient names kept in the name to id cache used when writing recipes.
+         */
+        private int cacheSize = 10_000;
+        /**
+         * Number of suggestions returned when an autocomplete request does not specify a limit.
+         */
+        private int defaultSuggestions = 10;
+        /**
+         * Upper bound for the limit of an autocomplete request.
+         */
+        private int maxSuggestions = 100;
+    }
+
+    @Data
+    public static class BulkImport {
+        /**
+         * Recipes written per transaction by the bulk import. A failing chunk is retried one recipe at a time.
+         */
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class SearchCache {
+        /**
+         * Upper bound for the number of recipes held by all cached search result pages together.
+         */
+        private long maximumRecipes = 100_000;
+        /**
+         * Pages with more recipes than this are not cached.
+         */
+        private int maximumEntryRecipes = 1000;
+    }
+
+    @Data
+    public static class Admission {
+        /**
+         * Whether API requests pass through the bulkhead at all.
+         */
+        private boolean enabled = true;
+        /**
+         * API requests executing at the same time; matches the connection pool, so admitted requests do not wait
+         * for a connection.
+         */
+        private int maxConcurrent = 5;
+        /**
+         * API requests allowed to wait for a slot; requests beyond this are rejected immediately.
+         */
+        private int queueCapacity = 20;
+        /**
+         * Longest time a request waits for a slot before it is rejected.
+         */
+        private Duration maxQueueWait = Duration.ofSeconds(2);
+        /**
+         * Retry-After sent with rejected requests.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Replica {
+        /**
+         * JDBC url of a read replica. When set, read-only transactions use it; otherwise everything uses the primary.
+         */
+        private String url;
+        private String username;
+        private String password;
+        /**
+         * Connections in the replica pool, which is separate from the primary pool.
+         */
+        private int maximumPoolSize = 10;
+        /**
+         * How long reads stay on the primary for a client after its own write, and how long after any write results
+         * are not cached. Should exceed the replication lag.
+         */
+        private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Pantry {
+        /**
+         * Upper bound for the number of ingredients in a pantry query.
+         */
+        private int maxIngredients = 500;
+        /**
+         * Upper bound for the number of ingredients a recipe may miss from the pantry.
+         */
+        private int maxMissing = 5;
+        /**
+         * Number of recipes returned when a pantry query does not specify a limit.
+         */
+        private int defaultLimit = 20;
+        /**
+         * Upper bound for the limit of a pantry query.
+         */
+        private int maxLimit = 100;
+    }
+
+    @Data
+    public static class Changes {
+        /**
+         * Number of changes returned when a change request does not specify a limit.
+         */
+        private int defaultLimit = 100;
+        /**
+         * Upper bound for the limit of a change request.
+         */
+        private int maxLimit = 1000;
+        /**
+         * How long changes are kept. Mirrors that fall further behind have to copy the catalog again.
+         */
+        private Duration retention = Duration.ofDays(7);
+        /**
+         * Interval between removals of changes older than the retention.
+         */
+        private Duration purgeInterval = Duration.ofHours(1);
+        /**
+         * Interval at which open event streams look for changes committed by other instances; changes committed
+         * by this instance are pushed at once.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+        /**
+         * Upper bound for the number of open event streams. They hold no database connection while idle, so they
+         * are not counted by the admission control.
+         */
+        private int maxSubscribers = 100;
+        /**
+         * Upper bound for the changes queued for an event stream that are not sent yet. A stream falling further
+         * behind is not read for until its queue has been sent.
+         */
+        private int maxPending = 1000;
+        /**
+         * Time after which an event stream is closed; clients reconnect with Last-Event-ID.
+         */
+        private Duration streamTimeout = Duration.ofMinutes(30);
+    }
+
+    public enum IngredientFilter { INDEX, DATABASE }
+
+    public enum TextIndex { MEMORY, DATABASE }
+}
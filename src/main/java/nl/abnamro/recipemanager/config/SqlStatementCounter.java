@@ -0,0 +1,33 @@
+package nl.abnamro.recipemanager.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()}.
+ * Statements issued through a JdbcTemplate bypass Hibernate and are not counted.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private final ThreadLocal<long[]> count = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        var current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        count.set(new long[1]);
+    }
+
+    /**
+     * Returns the number of statements counted since {@link #start()}, or -1 if counting was not started.
+     */
+    public long stop() {
+        var current = count.get();
+        count.remove();
+        return current == null ? -1 : current[0];
+    }
+}
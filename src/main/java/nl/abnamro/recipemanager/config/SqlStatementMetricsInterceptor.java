@@ -0,0 +1,53 @@
+package nl.abnamro.recipemanager.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the number of SQL statements per request, tagged like http.server.requests with the method and the uri
+ * template. Streaming responses run on another thread after the handler returns and are not recorded.
+ */
+public class SqlStatementMetricsInterceptor implements AsyncHandlerInterceptor {
+    private final SqlStatementCounter sqlStatementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatementMetricsInterceptor(SqlStatementCounter sqlStatementCounter, MeterRegistry meterRegistry) {
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the dispatch that writes an async result is not counted as a request of its own
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            sqlStatementCounter.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        sqlStatementCounter.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        var statements = sqlStatementCounter.stop();
+        if (statements < 0) {
+            return;
+        }
+        var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("recipes.sql.statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements);
+    }
+}
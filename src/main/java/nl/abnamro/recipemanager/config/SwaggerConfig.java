@@ -1,14 +1,23 @@
 package nl.abnamro.recipemanager.config;
 
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.List;
+
+// springfox.documentation.enabled only switches off the starter's auto-configuration, not @EnableSwagger2
 @Configuration
+@ConditionalOnProperty(name = "springfox.documentation.enabled", havingValue = "true", matchIfMissing = true)
 @EnableSwagger2
 public class SwaggerConfig {
     @Bean
@@ -19,4 +28,25 @@ public class SwaggerConfig {
                 .paths(PathSelectors.any())
                 .build();
     }
+
+    /**
+     * Springfox cannot read handler mappings based on path patterns, which the actuator endpoints always use,
+     * so those mappings are hidden from it.
+     */
+    @Bean
+    public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof WebMvcRequestHandlerProvider) {
+                    var field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+                    ReflectionUtils.makeAccessible(field);
+                    var handlerMappings = (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+                    handlerMappings.removeIf(handlerMapping -> handlerMapping.getPatternParser() != null);
+                }
+                return bean;
+            }
+        };
+    }
 }
@@ -0,0 +1,131 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.control.RecipeChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead in front of the API: at most {@code maxConcurrent} requests execute, at most {@code queueCapacity} wait
+ * for a slot and only up to {@code maxQueueWait}. Everything else is rejected at once with 503 and Retry-After, so
+ * a burst cannot park threads on the connection pool until its timeout and recovery starts as soon as it is over.
+ * A streamed response keeps its slot until the stream completes, unless its handler gives the slot back with
+ * {@link #release}: event streams stay open for long and hold no connection while idle, {@link RecipeChangeFeed}
+ * bounds their number instead.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final String RELEASE_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".release";
+
+    private final RecipesProperties.Admission admission;
+    private final Semaphore slots;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    @Autowired
+    public AdmissionControlFilter(RecipesProperties recipesProperties, MeterRegistry meterRegistry) {
+        this.admission = recipesProperties.getAdmission();
+        this.slots = new Semaphore(admission.getMaxConcurrent(), true);
+        this.rejected = meterRegistry.counter("recipes.admission.rejected");
+    }
+
+    /**
+     * Gives the slot of the current request back before its response completes. Called by the handler, so a client
+     * cannot leave the bulkhead by asking for another media type.
+     */
+    public static void release(HttpServletRequest request) {
+        if (request.getAttribute(RELEASE_ATTRIBUTE) instanceof Runnable release) {
+            release.run();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !admission.isEnabled() || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!acquire()) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, admission.getRetryAfter().toSeconds())));
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        var released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        };
+        request.setAttribute(RELEASE_ATTRIBUTE, release);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private boolean acquire() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > admission.getQueueCapacity()) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(admission.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the listener stays registered for the restarted cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class DeleteResult {
+    private final long deleted;
+}
@@ -0,0 +1,46 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Recipes whose ingredients refer by position to a dictionary of the ingredient names used in the response, so
+ * every name is sent once instead of once per recipe.
+ */
+@AllArgsConstructor
+@Getter
+public class DictionaryRecipesResponse {
+    private final List<String> ingredients;
+    private final List<DictionaryRecipe> recipes;
+
+    public static DictionaryRecipesResponse of(List<RecipeResponse> recipeResponses) {
+        var dictionary = new ArrayList<String>();
+        var positions = new HashMap<String, Integer>();
+        var recipes = new ArrayList<DictionaryRecipe>(recipeResponses.size());
+        for (var recipe : recipeResponses) {
+            var ingredients = recipe.getIngredients().stream()
+                    .mapToInt(name -> positions.computeIfAbsent(name, key -> {
+                        dictionary.add(key);
+                        return dictionary.size() - 1;
+                    }))
+                    .toArray();
+            recipes.add(new DictionaryRecipe(recipe.getId(), recipe.isVegetarian(), recipe.getServings(),
+                    recipe.getInstructions(), ingredients));
+        }
+        return new DictionaryRecipesResponse(dictionary, recipes);
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class DictionaryRecipe {
+        private final Long id;
+        private final boolean isVegetarian;
+        private final int servings;
+        private final String instructions;
+        private final int[] ingredients;
+    }
+}
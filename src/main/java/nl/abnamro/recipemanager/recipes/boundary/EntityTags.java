@@ -0,0 +1,42 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import java.util.Arrays;
+
+/**
+ * Strong entity tags derived from the recipe version, and the matching rules of RFC 9110 for the conditional
+ * request headers.
+ */
+final class EntityTags {
+    private EntityTags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns whether any tag in If-None-Match matches the version, so the request's condition fails. If-None-Match
+     * uses weak comparison: {@code W/"3"} matches version 3.
+     */
+    static boolean matchesIfNoneMatch(String ifNoneMatch, long version) {
+        var tag = of(version);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(tag) || candidate.equals("W/" + tag));
+    }
+
+    /**
+     * Returns the version of a single strong tag in If-Match, or null when the header holds anything else.
+     */
+    static Long ifMatchVersion(String ifMatch) {
+        var tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.control.IngredientSuggester;
+import nl.abnamro.recipemanager.recipes.control.IngredientSuggestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RequestMapping("/api/ingredients")
+@RestController
+public class IngredientsResource {
+    private final IngredientSuggester ingredientSuggester;
+    private final RecipesProperties recipesProperties;
+
+    @Autowired
+    public IngredientsResource(IngredientSuggester ingredientSuggester, RecipesProperties recipesProperties) {
+        this.ingredientSuggester = ingredientSuggester;
+        this.recipesProperties = recipesProperties;
+    }
+
+    /**
+     * Autocompletes ingredient names from memory, without touching the database.
+     */
+    @GetMapping("suggestions")
+    public ResponseEntity<List<IngredientSuggestion>> suggestIngredients(@RequestParam String prefix,
+                                                                         @RequestParam(required = false) Integer limit) {
+        var ingredients = recipesProperties.getIngredients();
+        var size = Math.min(limit == null ? ingredients.getDefaultSuggestions() : limit, ingredients.getMaxSuggestions());
+        if (size < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(ingredientSuggester.suggest(prefix, size), HttpStatus.OK);
+    }
+}
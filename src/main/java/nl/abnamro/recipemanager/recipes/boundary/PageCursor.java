@@ -0,0 +1,79 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import nl.abnamro.recipemanager.recipes.control.TextStatistics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque keyset cursor: the sort key and the id of the last recipe on the previous page, base64url-encoded so
+ * clients do not depend on its layout. Pages sorted by id only carry the id; full-text pages also carry the score
+ * and, when scores depend on the whole catalog, the statistics they were computed with.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+final class PageCursor {
+    private static final String ID = "id";
+    private static final String SCORE = "score";
+
+    private final Double score;
+    private final long lastId;
+    private final TextStatistics statistics;
+
+    static String encode(long lastId) {
+        return encode(ID + ":" + lastId);
+    }
+
+    static String encode(double score, long lastId, TextStatistics statistics) {
+        if (statistics == null) {
+            return encode(SCORE + ":" + score + ":" + lastId);
+        }
+        return encode(SCORE + ":" + score + ":" + lastId + ":" + statistics.getDocumentCount() + ":"
+                + statistics.getTotalLength() + ":" + Arrays.stream(statistics.getDocumentFrequencies())
+                .mapToObj(Long::toString).collect(Collectors.joining(",")));
+    }
+
+    /**
+     * Returns the decoded cursor, or null when the cursor is malformed or holds an id no recipe can have: recipe ids
+     * are positive and below {@link Integer#MAX_VALUE}, the ids the ingredient index can hold.
+     */
+    static PageCursor decode(String cursor) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2 && ID.equals(parts[0])) {
+                return ofLastId(null, Long.parseLong(parts[1]), null);
+            }
+            if ((parts.length == 3 || parts.length == 6) && SCORE.equals(parts[0])) {
+                var score = Double.parseDouble(parts[1]);
+                var statistics = parts.length == 3 ? null : new TextStatistics(Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]),
+                        Arrays.stream(parts[5].split(",")).mapToLong(Long::parseLong).toArray());
+                return Double.isFinite(score) && isValid(statistics)
+                        ? ofLastId(score, Long.parseLong(parts[2]), statistics)
+                        : null;
+            }
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static PageCursor ofLastId(Double score, long lastId, TextStatistics statistics) {
+        return lastId >= 0 && lastId < Integer.MAX_VALUE ? new PageCursor(score, lastId, statistics) : null;
+    }
+
+    private static boolean isValid(TextStatistics statistics) {
+        return statistics == null || statistics.getDocumentCount() >= 0 && statistics.getTotalLength() >= 0
+                && Arrays.stream(statistics.getDocumentFrequencies())
+                .allMatch(frequency -> frequency >= 0 && frequency <= statistics.getDocumentCount());
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,20 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Partial update of a recipe: absent fields are left unchanged, and the ingredients are changed by the given
+ * additions and removals only.
+ */
+@Data
+public class RecipePatch {
+    @JsonProperty("vegetarian")
+    private Boolean isVegetarian;
+    private Integer servings;
+    private String instructions;
+    private List<String> addIngredients;
+    private List<String> removeIngredients;
+}
@@ -1,5 +1,6 @@
 package nl.abnamro.recipemanager.recipes.boundary;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.util.List;
@@ -11,4 +12,7 @@ public class RecipeResponse {
     private int servings;
     private String instructions;
     private List<String> ingredients;
+    // sent as the ETag header, not in the body
+    @JsonIgnore
+    private long version;
 }
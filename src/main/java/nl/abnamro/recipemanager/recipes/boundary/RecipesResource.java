@@ -1,42 +1,245 @@
 package nl.abnamro.recipemanager.recipes.boundary;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.control.ImportResult;
+import nl.abnamro.recipemanager.recipes.control.PantryMatch;
+import nl.abnamro.recipemanager.recipes.control.RecipeChangeFeed;
+import nl.abnamro.recipemanager.recipes.control.RecipeChangeLog;
+import nl.abnamro.recipemanager.recipes.control.RecipeChangePage;
+import nl.abnamro.recipemanager.recipes.control.RecipeFacets;
+import nl.abnamro.recipemanager.recipes.control.RecipeImporter;
 import nl.abnamro.recipemanager.recipes.control.RecipesService;
 import nl.abnamro.recipemanager.recipes.control.SearchCriteria;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RequestMapping("/api/recipes")
 @RestController
 public class RecipesResource {
     private final RecipesService recipesService;
+    private final RecipeImporter recipeImporter;
+    private final RecipeChangeLog recipeChangeLog;
+    private final RecipeChangeFeed recipeChangeFeed;
+    private final RecipesProperties recipesProperties;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public RecipesResource(RecipesService recipesService) {
+    public RecipesResource(RecipesService recipesService, RecipeImporter recipeImporter,
+                           RecipeChangeLog recipeChangeLog, RecipeChangeFeed recipeChangeFeed,
+                           RecipesProperties recipesProperties, ObjectMapper objectMapper) {
         this.recipesService = recipesService;
+        this.recipeImporter = recipeImporter;
+        this.recipeChangeLog = recipeChangeLog;
+        this.recipeChangeFeed = recipeChangeFeed;
+        this.recipesProperties = recipesProperties;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     public ResponseEntity<List<RecipeResponse>> getRecipes(
+            @RequestParam(required = false) Boolean isVegetarian,
+            @RequestParam(required = false) Integer servings,
+            @RequestParam(required = false, defaultValue = "") String instructions,
+            @RequestParam(required = false, defaultValue = "") List<String> includedIngredients,
+            @RequestParam(required = false, defaultValue = "") List<String> excludedIngredients,
+            @RequestParam(required = false) String text,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        var search = recipesProperties.getSearch();
+        var pageSize = Math.min(limit == null ? search.getDefaultPageSize() : limit, search.getMaxPageSize());
+        var fullText = text != null && !text.isBlank();
+        var pageCursor = cursor == null ? null : PageCursor.decode(cursor);
+        if (pageSize < 1 || (cursor != null && (pageCursor == null || fullText != (pageCursor.getScore() != null)))) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        var searchCriteria = new SearchCriteria(isVegetarian, servings, instructions, includedIngredients, excludedIngredients);
+        var afterId = pageCursor == null ? null : pageCursor.getLastId();
+        var page = fullText
+                ? recipesService.searchRecipes(text, searchCriteria,
+                        pageCursor == null ? null : pageCursor.getStatistics(),
+                        pageCursor == null ? null : pageCursor.getScore(), afterId, pageSize)
+                : recipesService.getRecipes(searchCriteria, afterId, pageSize);
+        var headers = new HttpHeaders();
+        if (page.getNextAfterId() != null) {
+            var nextCursor = page.getNextAfterScore() == null
+                    ? PageCursor.encode(page.getNextAfterId())
+                    : PageCursor.encode(page.getNextAfterScore(), page.getNextAfterId(), page.getNextAfterStatistics());
+            var next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", nextCursor)
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return new ResponseEntity<>(page.getRecipes(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * The same search as {@link #getRecipes}, with the ingredient names sent once in a dictionary.
+     */
+    @GetMapping(params = "ingredientDictionary=true")
+    public ResponseEntity<DictionaryRecipesResponse> getRecipesWithIngredientDictionary(
+            @RequestParam(required = false) Boolean isVegetarian,
+            @RequestParam(required = false) Integer servings,
+            @RequestParam(required = false, defaultValue = "") String instructions,
+            @RequestParam(required = false, defaultValue = "") List<String> includedIngredients,
+            @RequestParam(required = false, defaultValue = "") List<String> excludedIngredients,
+            @RequestParam(required = false) String text,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        var recipes = getRecipes(isVegetarian, servings, instructions, includedIngredients, excludedIngredients, text,
+                limit, cursor);
+        if (recipes.getStatusCode() != HttpStatus.OK) {
+            return new ResponseEntity<>(recipes.getStatusCode());
+        }
+        return new ResponseEntity<>(DictionaryRecipesResponse.of(recipes.getBody()), recipes.getHeaders(), HttpStatus.OK);
+    }
+
+    /**
+     * Facets hold no recipes to send with a dictionary. Being more specific than either mapping, this keeps a
+     * request asking for both from matching the two ambiguously.
+     */
+    @GetMapping(params = {"facets=true", "ingredientDictionary=true"})
+    public ResponseEntity<Void> getFacetsWithIngredientDictionary() {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Counts per ingredient, vegetarian flag and servings over all recipes matching the search, instead of the
+     * recipes themselves. Full-text searches have no facets.
+     */
+    @GetMapping(params = "facets=true")
+    public ResponseEntity<RecipeFacets> getFacets(
+            @RequestParam(required = false) Boolean isVegetarian,
+            @RequestParam(required = false) Integer servings,
+            @RequestParam(required = false, defaultValue = "") String instructions,
+            @RequestParam(required = false, defaultValue = "") List<String> includedIngredients,
+            @RequestParam(required = false, defaultValue = "") List<String> excludedIngredients,
+            @RequestParam(required = false) String text,
+            @RequestParam(required = false) Integer facetLimit) {
+        var search = recipesProperties.getSearch();
+        var size = Math.min(facetLimit == null ? search.getDefaultFacetIngredients() : facetLimit,
+                search.getMaxFacetIngredients());
+        if (size < 1 || (text != null && !text.isBlank())) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        var searchCriteria = new SearchCriteria(isVegetarian, servings, instructions, includedIngredients, excludedIngredients);
+        return new ResponseEntity<>(recipesService.getFacets(searchCriteria, size), HttpStatus.OK);
+    }
+
+    /**
+     * Recipes that can be cooked from the pantry, or that miss at most {@code maxMissing} ingredients, fewest missing
+     * first, each with the ingredients it misses.
+     */
+    @GetMapping("cookable")
+    public ResponseEntity<List<PantryMatch>> getCookableRecipes(
+            @RequestParam List<String> pantry,
+            @RequestParam(required = false, defaultValue = "0") int maxMissing,
+            @RequestParam(required = false) Integer limit) {
+        var pantryProperties = recipesProperties.getPantry();
+        var size = Math.min(limit == null ? pantryProperties.getDefaultLimit() : limit, pantryProperties.getMaxLimit());
+        if (size < 1 || maxMissing < 0 || maxMissing > pantryProperties.getMaxMissing()
+                || pantry.size() > pantryProperties.getMaxIngredients()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(recipesService.getCookableRecipes(pantry, maxMissing, size), HttpStatus.OK);
+    }
+
+    /**
+     * Changes with a sequence greater than {@code since}, oldest first, with a next link while there are more.
+     * Without {@code since} only the latest sequence is returned, the point a new mirror starts from. Answers 410
+     * when the changes after {@code since} are no longer retained, so the mirror has to copy the catalog again.
+     */
+    @GetMapping("changes")
+    public ResponseEntity<RecipeChangePage> getChanges(@RequestParam(required = false) Long since,
+                                                       @RequestParam(required = false) Integer limit) {
+        var changes = recipesProperties.getChanges();
+        var size = Math.min(limit == null ? changes.getDefaultLimit() : limit, changes.getMaxLimit());
+        if (size < 1 || (since != null && since < 0)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        var page = recipeChangeLog.getChanges(since, size);
+        if (page == null) {
+            return new ResponseEntity<>(HttpStatus.GONE);
+        }
+        var headers = new HttpHeaders();
+        if (page.getChanges().size() == size) {
+            var next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("since", page.getChanges().get(size - 1).getSequence())
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return new ResponseEntity<>(page, headers, HttpStatus.OK);
+    }
+
+    /**
+     * The changes as server-sent events, named after the change type and identified by their sequence, pushed as
+     * they are committed. A reconnecting client resumes after its Last-Event-ID; without it or {@code since} the
+     * stream starts with the next change.
+     */
+    @GetMapping(path = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            HttpServletRequest request) {
+        var from = lastEventId != null ? lastEventId : since;
+        if (from != null && from < 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (from != null && !recipeChangeLog.isRetained(from)) {
+            return new ResponseEntity<>(HttpStatus.GONE);
+        }
+        var emitter = recipeChangeFeed.subscribe(from);
+        if (emitter == null) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        // the open stream is bounded by the feed, not by the admission slots
+        AdmissionControlFilter.release(request);
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRecipes(
             @RequestParam(required = false) Boolean isVegetarian,
             @RequestParam(required = false) Integer servings,
             @RequestParam(required = false, defaultValue = "") String instructions,
             @RequestParam(required = false, defaultValue = "") List<String> includedIngredients,
             @RequestParam(required = false, defaultValue = "") List<String> excludedIngredients) {
         var searchCriteria = new SearchCriteria(isVegetarian, servings, instructions, includedIngredients, excludedIngredients);
-        var recipes = recipesService.getRecipes(searchCriteria);
-        return new ResponseEntity<>(recipes, HttpStatus.OK);
+        var writer = objectMapper.writerFor(RecipeResponse.class);
+        StreamingResponseBody body = outputStream -> recipesService.streamRecipes(searchCriteria, recipe -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(recipe));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping
@@ -48,13 +251,77 @@ public class RecipesResource {
         return new ResponseEntity<>(recipe, HttpStatus.OK);
     }
 
+    @PostMapping(path = "import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportResult> importRecipes(InputStream body) throws IOException {
+        return new ResponseEntity<>(recipeImporter.importRecipes(body), HttpStatus.OK);
+    }
+
+    /**
+     * With If-Match the update only happens if the recipe is still at the tagged version, otherwise 412 is returned.
+     */
     @PutMapping("{id}")
-    public ResponseEntity<RecipeResponse> updateRecipe(@PathVariable int id, @RequestBody RecipeRequest recipeRequest) {
-        var recipe = recipesService.updateRecipe(id, recipeRequest);
+    public ResponseEntity<RecipeResponse> updateRecipe(@PathVariable int id,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                       @RequestBody RecipeRequest recipeRequest) {
+        RecipeResponse recipe;
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            recipe = recipesService.updateRecipe(id, recipeRequest);
+        } else {
+            var expectedVersion = EntityTags.ifMatchVersion(ifMatch);
+            if (expectedVersion == null) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+            try {
+                recipe = recipesService.updateRecipe(id, expectedVersion, recipeRequest);
+            } catch (OptimisticLockingFailureException e) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+        }
         if (recipe == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(recipe, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EntityTags.of(recipe.getVersion())).body(recipe);
+    }
+
+    @PatchMapping("{id}")
+    public ResponseEntity<RecipeResponse> patchRecipe(@PathVariable int id,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                      @RequestBody RecipePatch recipePatch) {
+        Long expectedVersion = null;
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            expectedVersion = EntityTags.ifMatchVersion(ifMatch);
+            if (expectedVersion == null) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+        }
+        RecipeResponse recipe;
+        try {
+            recipe = recipesService.patchRecipe(id, expectedVersion, recipePatch);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
+        if (recipe == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok().eTag(EntityTags.of(recipe.getVersion())).body(recipe);
+    }
+
+    /**
+     * Deletes all recipes matching the filters, which take the same parameters as {@link #getRecipes}. At least one
+     * filter is required, so an empty query string or blank filters cannot delete the whole catalog.
+     */
+    @DeleteMapping
+    public ResponseEntity<DeleteResult> deleteRecipes(
+            @RequestParam(required = false) Boolean isVegetarian,
+            @RequestParam(required = false) Integer servings,
+            @RequestParam(required = false, defaultValue = "") String instructions,
+            @RequestParam(required = false, defaultValue = "") List<String> includedIngredients,
+            @RequestParam(required = false, defaultValue = "") List<String> excludedIngredients) {
+        var searchCriteria = new SearchCriteria(isVegetarian, servings, instructions, includedIngredients, excludedIngredients);
+        if (!searchCriteria.hasFilter()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(new DeleteResult(recipesService.deleteRecipes(searchCriteria)), HttpStatus.OK);
     }
 
     @DeleteMapping("{id}")
@@ -66,12 +333,25 @@ public class RecipesResource {
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    /**
+     * Answers a matching If-None-Match with 304 after reading only the version, without loading the recipe.
+     */
     @GetMapping("{id}")
-    public ResponseEntity<RecipeResponse> getRecipe(@PathVariable int id) {
+    public ResponseEntity<RecipeResponse> getRecipe(@PathVariable int id,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            var version = recipesService.getRecipeVersion(id);
+            if (version == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (EntityTags.matchesIfNoneMatch(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(EntityTags.of(version)).build();
+            }
+        }
         var recipe = recipesService.getRecipe(id);
         if (recipe == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(recipe, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EntityTags.of(recipe.getVersion())).body(recipe);
     }
 }
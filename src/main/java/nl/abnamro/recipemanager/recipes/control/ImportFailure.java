@@ -0,0 +1,14 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class ImportFailure {
+    /**
+     * Zero-based position of the recipe in the imported document.
+     */
+    private final long index;
+    private final String message;
+}
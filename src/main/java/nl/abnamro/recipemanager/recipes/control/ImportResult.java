@@ -0,0 +1,13 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class ImportResult {
+    private final long imported;
+    private final List<ImportFailure> failures;
+}
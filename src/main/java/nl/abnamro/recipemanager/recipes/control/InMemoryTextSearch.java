@@ -0,0 +1,202 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over recipe instructions, ranking matches with BM25. Used where the database has no
+ * full-text support (H2) and kept in sync through {@link RecipeChangedEvent}s. Never lazy, so the index is built
+ * while the application starts rather than by the first search.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "recipes.search.text-index", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTextSearch implements TextSearch {
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Comparator<ScoredRecipe> RANKING = Comparator.comparingDouble(ScoredRecipe::getScore)
+            .reversed()
+            .thenComparingLong(ScoredRecipe::getRecipeId);
+
+    private final RecipeRepository recipeRepository;
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    @Autowired
+    public InMemoryTextSearch(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        var recipes = recipeRepository.findAllInstructions();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            recipes.forEach(recipe -> add(recipe.getId(), recipe.getInstructions()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (event.getType() == RecipeChangedEvent.Type.DELETED) {
+            remove(event.getRecipeId());
+        } else {
+            put(event.getRecipeId(), event.getInstructions());
+        }
+    }
+
+    public void put(long recipeId, String instructions) {
+        lock.writeLock().lock();
+        try {
+            delete(recipeId);
+            add(recipeId, instructions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            delete(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public TextStatistics statistics(String text) {
+        var terms = new LinkedHashSet<>(tokenize(text));
+        lock.readLock().lock();
+        try {
+            return new TextStatistics(documents.size(), totalLength, terms.stream()
+                    .mapToLong(term -> postings.getOrDefault(term, Map.of()).size())
+                    .toArray());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredRecipe> search(String text, TextStatistics statistics, Double afterScore, Long afterId,
+            int limit) {
+        var terms = new LinkedHashSet<>(tokenize(text));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            var termPostings = terms.stream().map(postings::get).toList();
+            if (termPostings.contains(null)) {
+                return List.of();
+            }
+            // statistics of another text do not apply
+            var ranking = statistics != null && statistics.getDocumentFrequencies().length == terms.size()
+                    ? statistics
+                    : new TextStatistics(documents.size(), totalLength,
+                            termPostings.stream().mapToLong(Map::size).toArray());
+            var documentCount = ranking.getDocumentCount();
+            var averageLength = documentCount == 0 ? 1 : (double) ranking.getTotalLength() / documentCount;
+            var idfs = Arrays.stream(ranking.getDocumentFrequencies())
+                    .mapToDouble(frequency -> Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5)))
+                    .toArray();
+            // drive the conjunction from the rarest term; a heap of the best matches after the cursor,
+            // with the worst on top, avoids sorting every match
+            var rarest = termPostings.stream().min(Comparator.comparingInt(Map::size)).orElseThrow();
+            var top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (var recipeId : rarest.keySet()) {
+                if (!termPostings.stream().allMatch(posting -> posting.containsKey(recipeId))) {
+                    continue;
+                }
+                var scoredRecipe = new ScoredRecipe(recipeId, score(recipeId, termPostings, idfs, averageLength));
+                if (afterScore != null && afterId != null && !isAfter(scoredRecipe, afterScore, afterId)) {
+                    continue;
+                }
+                top.add(scoredRecipe);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            return top.stream().sorted(RANKING).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isAfter(ScoredRecipe scoredRecipe, double afterScore, long afterId) {
+        return scoredRecipe.getScore() < afterScore
+                || (scoredRecipe.getScore() == afterScore && scoredRecipe.getRecipeId() > afterId);
+    }
+
+    private double score(long recipeId, List<Map<Long, Integer>> termPostings, double[] idfs, double averageLength) {
+        var length = documents.get(recipeId).length();
+        var score = 0.0;
+        for (var i = 0; i < idfs.length; i++) {
+            var frequency = termPostings.get(i).get(recipeId);
+            score += idfs[i] * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+        }
+        return score;
+    }
+
+    private void add(long recipeId, String instructions) {
+        var tokens = tokenize(instructions);
+        var frequencies = new HashMap<String, Integer>();
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, key -> new HashMap<>()).put(recipeId, frequency));
+        documents.put(recipeId, new Document(frequencies.keySet().toArray(String[]::new), tokens.size()));
+        totalLength += tokens.size();
+    }
+
+    private void delete(long recipeId) {
+        var document = documents.remove(recipeId);
+        if (document == null) {
+            return;
+        }
+        for (var term : document.terms()) {
+            var posting = postings.get(term);
+            posting.remove(recipeId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= document.length();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private record Document(String[] terms, int length) {
+    }
+}
@@ -0,0 +1,11 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class IngredientFacet {
+    private final String name;
+    private final long recipeCount;
+}
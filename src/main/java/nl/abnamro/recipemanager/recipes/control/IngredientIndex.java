@@ -0,0 +1,273 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.IngredientPosting;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from ingredient name to the ids of the recipes using it, stored as bitmaps so that
+ * included/excluded ingredient filters become bitwise intersections and differences. Recipe ids are used as bit
+ * indexes and must therefore stay below {@link Integer#MAX_VALUE}.
+ * <p>
+ * After-commit events of concurrent transactions may arrive out of order, so each recipe keeps the version it was
+ * indexed at and older changes are ignored. Removed recipes are remembered, as their ids are never reused, so a late
+ * update cannot bring them back. Never lazy: the catalog is read once at startup, not within the first request.
+ */
+@Component
+@Lazy(false)
+public class IngredientIndex {
+    private final RecipeRepository recipeRepository;
+    private final Map<String, BitSet> postings = new HashMap<>();
+    // cardinality of each posting, kept up to date so ranking by usage does not count bits
+    private final Map<String, Integer> recipeCounts = new HashMap<>();
+    // number of ingredients per recipe, by recipe index
+    private int[] ingredientCounts = new int[0];
+    private final Map<Integer, IndexedRecipe> recipes = new HashMap<>();
+    // every recipe indexed, including those without ingredients
+    private final BitSet indexed = new BitSet();
+    private final BitSet removed = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public IngredientIndex(RecipeRepository recipeRepository) {
+        this.recipeRepository = recipeRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        var rebuilt = new HashMap<String, BitSet>();
+        var rebuiltRecipes = new HashMap<Integer, IndexedRecipe>();
+        for (IngredientPosting posting : recipeRepository.findAllIngredientPostings()) {
+            var index = toIndex(posting.getRecipeId());
+            var names = rebuiltRecipes.computeIfAbsent(index, key -> new IndexedRecipe(posting.getRecipeVersion(),
+                    new ArrayList<>())).ingredientNames();
+            // null for a recipe without ingredients
+            if (posting.getIngredientName() != null) {
+                rebuilt.computeIfAbsent(posting.getIngredientName(), name -> new BitSet()).set(index);
+                names.add(posting.getIngredientName());
+            }
+        }
+        var rebuiltCounts = new HashMap<String, Integer>();
+        rebuilt.forEach((name, posting) -> rebuiltCounts.put(name, posting.cardinality()));
+        var rebuiltIngredientCounts = new int[rebuilt.values().stream().mapToInt(BitSet::length).max().orElse(0)];
+        rebuilt.values().forEach(posting -> posting.stream().forEach(index -> rebuiltIngredientCounts[index]++));
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            postings.putAll(rebuilt);
+            recipeCounts.clear();
+            recipeCounts.putAll(rebuiltCounts);
+            ingredientCounts = rebuiltIngredientCounts;
+            recipes.clear();
+            recipes.putAll(rebuiltRecipes);
+            indexed.clear();
+            rebuiltRecipes.keySet().forEach(indexed::set);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Order(RecipeChangedEvent.INDEX_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED, UPDATED -> put(event.getRecipeId(), event.getVersion(), event.getIngredientNames());
+            case DELETED -> remove(event.getRecipeId());
+        }
+    }
+
+    /**
+     * Indexes the ingredients of a recipe at the given version, replacing those of an older version. Ignored when the
+     * recipe is already indexed at a newer version or was removed.
+     */
+    public void put(long recipeId, long version, Collection<String> ingredientNames) {
+        var index = toIndex(recipeId);
+        lock.writeLock().lock();
+        try {
+            var previous = recipes.get(index);
+            if (removed.get(index) || previous != null && previous.version() > version) {
+                return;
+            }
+            clear(index);
+            var names = List.copyOf(new LinkedHashSet<>(ingredientNames));
+            names.forEach(name -> set(name, index));
+            recipes.put(index, new IndexedRecipe(version, names));
+            indexed.set(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long recipeId) {
+        var index = toIndex(recipeId);
+        lock.writeLock().lock();
+        try {
+            clear(index);
+            removed.set(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the recipes containing all included ingredients and none of the excluded ones.
+     * The included ingredients must not be empty.
+     */
+    public BitSet matchIncluded(Collection<String> includedIngredients, Collection<String> excludedIngredients) {
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (var name : includedIngredients) {
+                var posting = postings.get(name);
+                if (posting == null) {
+                    return new BitSet();
+                }
+                if (result == null) {
+                    result = (BitSet) posting.clone();
+                } else {
+                    result.and(posting);
+                }
+            }
+            if (result != null && excludedIngredients != null) {
+                result.andNot(union(excludedIngredients));
+            }
+            return result == null ? new BitSet() : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the recipes containing at least one of the given ingredients.
+     */
+    public BitSet matchAny(Collection<String> ingredients) {
+        lock.readLock().lock();
+        try {
+            return union(ingredients);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of recipes using the given ingredient.
+     */
+    public int recipeCount(String ingredient) {
+        lock.readLock().lock();
+        try {
+            return recipeCounts.getOrDefault(ingredient, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the recipes missing at most {@code maxMissing} of their ingredients from the pantry, fewest missing first,
+     * then by id, at most {@code limit}. A counter per recipe is incremented along the postings of the pantry
+     * ingredients, so the cost follows the pantry and catalog sizes, not the number of matches. Recipes without
+     * ingredients miss none and can be cooked from any pantry.
+     */
+    public List<PantryCandidate> matchPantry(Collection<String> pantry, int maxMissing, int limit) {
+        lock.readLock().lock();
+        try {
+            var matched = new int[ingredientCounts.length];
+            for (var name : new HashSet<>(pantry)) {
+                var posting = postings.get(name);
+                if (posting == null) {
+                    continue;
+                }
+                for (var index = posting.nextSetBit(0); index >= 0; index = posting.nextSetBit(index + 1)) {
+                    matched[index]++;
+                }
+            }
+            // one list per number missing, each filled in id order up to the limit
+            var byMissing = new ArrayList<List<PantryCandidate>>(maxMissing + 1);
+            for (var missing = 0; missing <= maxMissing; missing++) {
+                byMissing.add(new ArrayList<>());
+            }
+            for (var index = indexed.nextSetBit(0); index >= 0 && byMissing.get(0).size() < limit;
+                 index = indexed.nextSetBit(index + 1)) {
+                var missing = index < matched.length ? ingredientCounts[index] - matched[index] : 0;
+                if (missing <= maxMissing && byMissing.get(missing).size() < limit) {
+                    byMissing.get(missing).add(new PantryCandidate(index, missing));
+                }
+            }
+            return byMissing.stream().flatMap(List::stream).limit(limit).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet union(Collection<String> ingredients) {
+        var result = new BitSet();
+        for (var name : ingredients) {
+            var posting = postings.get(name);
+            if (posting != null) {
+                result.or(posting);
+            }
+        }
+        return result;
+    }
+
+    private void set(String name, int index) {
+        var posting = postings.computeIfAbsent(name, key -> new BitSet());
+        if (!posting.get(index)) {
+            posting.set(index);
+            recipeCounts.merge(name, 1, Integer::sum);
+            if (index >= ingredientCounts.length) {
+                ingredientCounts = Arrays.copyOf(ingredientCounts, Math.max(index + 1, ingredientCounts.length * 2));
+            }
+            ingredientCounts[index]++;
+        }
+    }
+
+    // clears only the postings of the ingredients the recipe was indexed with
+    private void clear(int index) {
+        var previous = recipes.remove(index);
+        if (previous == null) {
+            return;
+        }
+        indexed.clear(index);
+        if (index < ingredientCounts.length) {
+            ingredientCounts[index] = 0;
+        }
+        for (var name : previous.ingredientNames()) {
+            var posting = postings.get(name);
+            posting.clear(index);
+            if (posting.isEmpty()) {
+                postings.remove(name);
+                recipeCounts.remove(name);
+            } else {
+                recipeCounts.merge(name, -1, Integer::sum);
+            }
+        }
+    }
+
+    static int toIndex(long recipeId) {
+        if (recipeId < 0 || recipeId >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Recipe id " + recipeId + " does not fit the ingredient index");
+        }
+        return (int) recipeId;
+    }
+
+    private record IndexedRecipe(long version, List<String> ingredientNames) {
+    }
+}
@@ -0,0 +1,98 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves ingredient names to entities with one {@code IN} query, creating the missing ones in one batched
+ * insert that tolerates concurrent creation of the same name. Resolved names are kept in a bounded LRU cache;
+ * names created by a transaction are only cached once it commits.
+ */
+@Component
+public class IngredientResolver {
+    private final IngredientRepository ingredientRepository;
+    private final IngredientSuggester ingredientSuggester;
+    private final Map<String, Ingredient> cache;
+
+    @Autowired
+    public IngredientResolver(IngredientRepository ingredientRepository, IngredientSuggester ingredientSuggester,
+                              RecipesProperties recipesProperties) {
+        this.ingredientRepository = ingredientRepository;
+        this.ingredientSuggester = ingredientSuggester;
+        var cacheSize = recipesProperties.getIngredients().getCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ingredient> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the ingredients with the given names, in the same order, creating the ones that do not exist yet.
+     */
+    public List<Ingredient> resolve(List<String> names) {
+        var resolved = new HashMap<String, Ingredient>();
+        var missing = new LinkedHashSet<String>();
+        synchronized (cache) {
+            for (var name : names) {
+                var ingredient = cache.get(name);
+                if (ingredient == null) {
+                    missing.add(name);
+                } else {
+                    resolved.put(name, ingredient);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return names.stream().map(resolved::get).toList();
+        }
+
+        var existing = ingredientRepository.findByNameIn(missing);
+        existing.forEach(ingredient -> resolved.put(ingredient.getName(), ingredient));
+        cache(existing);
+        var absent = missing.stream().filter(name -> !resolved.containsKey(name)).toList();
+        if (!absent.isEmpty()) {
+            ingredientRepository.insertMissing(absent);
+            var created = ingredientRepository.findByNameIn(absent);
+            created.forEach(ingredient -> resolved.put(ingredient.getName(), ingredient));
+            afterCommit(() -> {
+                cache(created);
+                ingredientSuggester.add(created.stream().map(Ingredient::getName).toList());
+            });
+        }
+        return names.stream().map(resolved::get).toList();
+    }
+
+    private void cache(Collection<Ingredient> ingredients) {
+        synchronized (cache) {
+            // detached copies, so no persistence context state is shared between transactions
+            ingredients.forEach(ingredient -> cache.put(ingredient.getName(), new Ingredient(ingredient.getId(), ingredient.getName())));
+        }
+    }
+
+    private static void afterCommit(Runnable runnable) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix index over all ingredient names for autocompletion. Names are kept sorted on their normalized form
+ * (lower case, without accents), so the names starting with a prefix are one contiguous range; matches are
+ * ranked by the number of recipes using them, as counted by {@link IngredientIndex}. Never lazy, so the names are
+ * loaded during startup.
+ */
+@Component
+@Lazy(false)
+public class IngredientSuggester {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    // separates the normalized form from the name in a key, and sorts before any character of a longer name
+    private static final char SEPARATOR = '\u0000';
+
+    private final IngredientRepository ingredientRepository;
+    private final IngredientIndex ingredientIndex;
+    private final TreeMap<String, String> names = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public IngredientSuggester(IngredientRepository ingredientRepository, IngredientIndex ingredientIndex) {
+        this.ingredientRepository = ingredientRepository;
+        this.ingredientIndex = ingredientIndex;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        var rebuilt = new TreeMap<String, String>();
+        ingredientRepository.findAllNames().forEach(name -> rebuilt.put(key(name), name));
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            names.putAll(rebuilt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(Collection<String> ingredientNames) {
+        lock.writeLock().lock();
+        try {
+            ingredientNames.forEach(name -> names.put(key(name), name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns at most {@code limit} ingredients whose normalized name starts with the normalized prefix, used by
+     * the most recipes first and alphabetically among equally used ones.
+     */
+    public List<IngredientSuggestion> suggest(String prefix, int limit) {
+        var normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        // ties are broken alphabetically by the position in normalized order
+        var ranking = Comparator.comparingInt(Candidate::recipeCount).reversed()
+                .thenComparingInt(Candidate::position);
+        // heap of the best matches so far, worst on top, so the range is ranked in O(n log limit) without copying it
+        var best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        lock.readLock().lock();
+        try {
+            var position = 0;
+            for (var name : names.subMap(normalizedPrefix, normalizedPrefix + Character.MAX_VALUE).values()) {
+                best.add(new Candidate(name, ingredientIndex.recipeCount(name), position++));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best.stream()
+                .sorted(ranking)
+                .map(candidate -> new IngredientSuggestion(candidate.name(), candidate.recipeCount()))
+                .toList();
+    }
+
+    private static String key(String name) {
+        return normalize(name) + SEPARATOR + name;
+    }
+
+    static String normalize(String name) {
+        var decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private record Candidate(String name, int recipeCount, int position) {
+    }
+}
@@ -0,0 +1,14 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class PantryCandidate {
+    private final long recipeId;
+    /**
+     * Number of the recipe's ingredients that are not in the pantry.
+     */
+    private final int missing;
+}
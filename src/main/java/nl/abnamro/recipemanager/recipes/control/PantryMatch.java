@@ -0,0 +1,14 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class PantryMatch {
+    private final RecipeResponse recipe;
+    private final List<String> missingIngredients;
+}
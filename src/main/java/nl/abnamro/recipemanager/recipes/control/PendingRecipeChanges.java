@@ -0,0 +1,61 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The recipe changes of the current transaction, the last one per recipe, for listeners that write them all at
+ * once when the transaction commits.
+ */
+class PendingRecipeChanges implements TransactionSynchronization {
+    private final Object owner;
+    // the last change per recipe, in the order the recipes were first changed
+    private final Map<Long, RecipeChangedEvent> changes = new LinkedHashMap<>();
+    private boolean completed;
+
+    private PendingRecipeChanges(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Returns the changes of {@code owner} in the current transaction, which must be active. The first call in a
+     * transaction binds them to it and passes them to {@code onCreate}, to schedule their write.
+     */
+    static PendingRecipeChanges of(Object owner, Consumer<PendingRecipeChanges> onCreate) {
+        var pending = (PendingRecipeChanges) TransactionSynchronizationManager.getResource(owner);
+        if (pending == null) {
+            pending = new PendingRecipeChanges(owner);
+            TransactionSynchronizationManager.bindResource(owner, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+            onCreate.accept(pending);
+        }
+        return pending;
+    }
+
+    void add(RecipeChangedEvent event) {
+        changes.merge(event.getRecipeId(), event, (previous, current) ->
+                previous.getType() == RecipeChangedEvent.Type.CREATED
+                        && current.getType() == RecipeChangedEvent.Type.UPDATED
+                        ? current.withType(RecipeChangedEvent.Type.CREATED)
+                        : current);
+    }
+
+    // a session kept open across transactions, as with open-in-view, also runs the callbacks of rolled back
+    // transactions at its next commit
+    List<RecipeChangedEvent> changes() {
+        return completed ? List.of() : new ArrayList<>(changes.values());
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        completed = true;
+        TransactionSynchronizationManager.unbindResourceIfPossible(owner);
+    }
+}
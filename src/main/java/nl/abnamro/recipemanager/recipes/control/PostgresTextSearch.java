@@ -0,0 +1,51 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Text search backed by a Postgres GIN index on the instructions' {@code tsvector}, created by
+ * {@code schema-postgresql.sql}. The {@code simple} configuration only lowercases tokens, which keeps results
+ * identical to {@link InMemoryTextSearch}.
+ */
+@Component
+@ConditionalOnProperty(name = "recipes.search.text-index", havingValue = "database")
+public class PostgresTextSearch implements TextSearch {
+    // must stay identical to the indexed expression of recipe_instructions_fts
+    private static final String DOCUMENT = "to_tsvector('simple', coalesce(instructions, ''))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PostgresTextSearch(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // ts_rank does not depend on other recipes
+    @Override
+    public TextStatistics statistics(String text) {
+        return null;
+    }
+
+    @Override
+    public List<ScoredRecipe> search(String text, TextStatistics statistics, Double afterScore, Long afterId,
+            int limit) {
+        var sql = "select id, score from (" +
+                "select id, cast(ts_rank(" + DOCUMENT + ", query) as double precision) as score " +
+                "from recipe, plainto_tsquery('simple', ?) as query " +
+                "where " + DOCUMENT + " @@ query) as ranked ";
+        RowMapper<ScoredRecipe> rowMapper =
+                (resultSet, rowNum) -> new ScoredRecipe(resultSet.getLong("id"), resultSet.getDouble("score"));
+        if (afterScore == null || afterId == null) {
+            return jdbcTemplate.query(sql + "order by score desc, id limit ?", rowMapper, text, limit);
+        }
+        // ties on the score are ordered by ascending id
+        return jdbcTemplate.query(sql + "where score < ? or (score = ? and id > ?) order by score desc, id limit ?",
+                rowMapper, text, afterScore, afterScore, afterId, limit);
+    }
+}
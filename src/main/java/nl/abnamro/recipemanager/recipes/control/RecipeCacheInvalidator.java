@@ -0,0 +1,58 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keys cached recipes on their id and a write generation, and evicts them once a change to them is committed,
+ * whichever write path made the change. A read racing the commit can still store what it read before the
+ * change, but under the previous generation, which is never looked up again. The generations are striped by id,
+ * so a write only misses the cache for the few recipes sharing its stripe.
+ */
+@Component(RecipeCacheInvalidator.NAME)
+public class RecipeCacheInvalidator implements KeyGenerator {
+    public static final String NAME = "recipeCacheInvalidator";
+    private static final int STRIPES = 1024;
+
+    private final Cache recipeCache;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    @Autowired
+    public RecipeCacheInvalidator(CacheManager cacheManager) {
+        this.recipeCache = Objects.requireNonNull(cacheManager.getCache(RecipesService.RECIPE_CACHE));
+    }
+
+    /**
+     * Expects the arguments of {@link RecipesService#getRecipe}. The generation is read before the recipe is, and
+     * only advanced after a write commits.
+     */
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        var id = (long) params[0];
+        return new RecipeKey(id, generations.get(stripe(id)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (event.getType() != RecipeChangedEvent.Type.CREATED) {
+            var id = event.getRecipeId();
+            recipeCache.evict(new RecipeKey(id, generations.getAndIncrement(stripe(id))));
+        }
+    }
+
+    private static int stripe(long id) {
+        return (int) Math.floorMod(id, (long) STRIPES);
+    }
+
+    private record RecipeKey(long id, long generation) {
+    }
+}
@@ -0,0 +1,19 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+@Getter
+public class RecipeChange {
+    private final long sequence;
+    private final RecipeChangedEvent.Type type;
+    private final long recipeId;
+    private final Instant changedAt;
+    // the recipe after the change; null for a deletion
+    private final RecipeResponse recipe;
+}
@@ -0,0 +1,247 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes recipe changes to open event streams. One thread reads each new page of changes once, from the lowest
+ * position of all streams, and queues for every stream the changes past its own position, so the database load does
+ * not grow with the number of streams. It runs after every commit of this instance and every {@code pollInterval} for
+ * the commits of others. Each stream is written by its own sender task from a queue of at most {@code maxPending}
+ * changes, so a slow client only holds up itself: while its queue has no room for a page it is skipped, and it is
+ * caught up from its own position once the queue has been sent. Changes past their retention are purged on a
+ * separate thread. Never lazy, so purging starts with the application.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+public class RecipeChangeFeed {
+    private static final int PAGE_SIZE = 500;
+
+    private final RecipeChangeLog recipeChangeLog;
+    private final RecipesProperties.Changes changes;
+    private final int pageSize;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            daemon("recipe-change-feed"));
+    // at most one task per open stream
+    private final ExecutorService senders = Executors.newCachedThreadPool(daemon("recipe-change-sender"));
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(
+            daemon("recipe-change-purge"));
+
+    @Autowired
+    public RecipeChangeFeed(RecipeChangeLog recipeChangeLog, RecipesProperties recipesProperties) {
+        this.recipeChangeLog = recipeChangeLog;
+        this.changes = recipesProperties.getChanges();
+        this.pageSize = Math.min(PAGE_SIZE, changes.getMaxPending());
+        var pollInterval = changes.getPollInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::dispatch, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        var purgeInterval = changes.getPurgeInterval().toMillis();
+        purger.scheduleWithFixedDelay(this::purge, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream of the changes after {@code since}, or of changes from now on without it. Returns null when
+     * {@code maxSubscribers} streams are open already.
+     */
+    public SseEmitter subscribe(Long since) {
+        if (subscribers.size() >= changes.getMaxSubscribers()) {
+            return null;
+        }
+        return subscribe(new SseEmitter(changes.getStreamTimeout().toMillis()), since);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long since) {
+        var position = since != null ? since : recipeChangeLog.getLatestSequence();
+        var subscriber = new Subscriber(emitter, position, changes.getMaxPending());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        triggerDispatch();
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (!subscribers.isEmpty()) {
+            triggerDispatch();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        purger.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    // the commits of a transaction with many changes queue a single dispatch
+    private void triggerDispatch() {
+        if (dispatchPending.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchPending.set(false);
+        try {
+            while (true) {
+                var ready = subscribers.stream().filter(this::hasRoom).toList();
+                if (ready.isEmpty()) {
+                    return;
+                }
+                var from = ready.stream().mapToLong(subscriber -> subscriber.position).min().orElseThrow();
+                var page = recipeChangeLog.getChanges(from, pageSize);
+                if (page == null) {
+                    // purged while the stream was behind; it has to start over
+                    ready.stream()
+                            .filter(subscriber -> subscriber.position == from)
+                            .forEach(this::close);
+                    continue;
+                }
+                ready.forEach(subscriber -> enqueue(subscriber, page.getChanges()));
+                if (page.getChanges().size() < pageSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            // keeps the schedule alive, the next round retries from the same positions
+            log.warn("Dispatching recipe changes failed", e);
+        }
+    }
+
+    // a stream without room for a page is skipped and dispatched to again once its sender has emptied the queue
+    private boolean hasRoom(Subscriber subscriber) {
+        subscriber.behind = true;
+        if (subscriber.pending.remainingCapacity() < pageSize) {
+            return false;
+        }
+        subscriber.behind = false;
+        return true;
+    }
+
+    private void enqueue(Subscriber subscriber, List<RecipeChange> page) {
+        for (var change : page) {
+            if (change.getSequence() > subscriber.position) {
+                subscriber.pending.add(change);
+                subscriber.position = change.getSequence();
+            }
+        }
+        scheduleSend(subscriber);
+    }
+
+    // completing waits for a send in progress, so it is left to the sender task as well
+    private void close(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.closed = true;
+        subscriber.pending.clear();
+        scheduleSend(subscriber);
+    }
+
+    private void scheduleSend(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            RecipeChange change;
+            while (!subscriber.closed && (change = subscriber.pending.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(change.getSequence()))
+                        .name(change.getType().name().toLowerCase(Locale.ROOT))
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+            if (subscriber.closed) {
+                complete(subscriber, null);
+                return;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away or the stream has completed
+            subscribers.remove(subscriber);
+            subscriber.closed = true;
+            complete(subscriber, e);
+            return;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (subscriber.behind) {
+            subscriber.behind = false;
+            triggerDispatch();
+        }
+        // changes queued after the last poll, but before sending was released
+        if (!subscriber.pending.isEmpty() || subscriber.closed) {
+            scheduleSend(subscriber);
+        }
+    }
+
+    private void complete(Subscriber subscriber, Exception e) {
+        if (!subscriber.completed.compareAndSet(false, true)) {
+            return;
+        }
+        if (e == null) {
+            subscriber.emitter.complete();
+        } else {
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void purge() {
+        try {
+            recipeChangeLog.purge();
+        } catch (RuntimeException e) {
+            log.warn("Purging recipe changes failed", e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        // the sequence of the last change queued; only written by the dispatching thread once subscribed
+        private volatile long position;
+        private final BlockingQueue<RecipeChange> pending;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        // skipped by a dispatch for lack of room
+        private volatile boolean behind;
+
+        Subscriber(SseEmitter emitter, long position, int maxPending) {
+            this.emitter = emitter;
+            this.position = position;
+            this.pending = new ArrayBlockingQueue<>(maxPending);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import io.micrometer.core.annotation.Timed;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangeEntry;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangeRepository;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Records every recipe change in {@code recipe_change} under a gap-free, increasing sequence, so mirrors can sync
+ * incrementally instead of reading the whole catalog. The changes of a transaction are collected, one per recipe, and
+ * appended while it commits, which keeps the lock on the sequence counter as short as the commit.
+ */
+@Component
+public class RecipeChangeLog {
+    private static final String SERVICE_TIMER = "recipes.service";
+
+    private final RecipeChangeRepository recipeChangeRepository;
+    private final RecipeMapper recipeMapper;
+    private final RecipesProperties recipesProperties;
+
+    @Autowired
+    public RecipeChangeLog(RecipeChangeRepository recipeChangeRepository, RecipeMapper recipeMapper,
+                           RecipesProperties recipesProperties) {
+        this.recipeChangeRepository = recipeChangeRepository;
+        this.recipeMapper = recipeMapper;
+        this.recipesProperties = recipesProperties;
+    }
+
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recipeChangeRepository.append(List.of(event), Instant.now());
+            return;
+        }
+        PendingRecipeChanges.of(this, pending -> recipeChangeRepository.appendOnCommit(pending::changes)).add(event);
+    }
+
+    /**
+     * Returns at most {@code limit} changes with a sequence greater than {@code since}, in sequence order. Without
+     * {@code since} the page holds no changes, only the sequence to start from. Returns null when changes after
+     * {@code since} are no longer retained.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    public RecipeChangePage getChanges(Long since, int limit) {
+        if (since == null) {
+            return new RecipeChangePage(List.of(), recipeChangeRepository.findLastSequence().orElse(0L));
+        }
+        if (!isRetained(since)) {
+            return null;
+        }
+        var changes = recipeChangeRepository.findByIdGreaterThanOrderById(since, PageRequest.of(0, limit)).stream()
+                .map(this::toChange)
+                .toList();
+        // read after the page, so it is never behind the page's last change
+        var latestSequence = recipeChangeRepository.findLastSequence().orElse(0L);
+        return new RecipeChangePage(changes, latestSequence);
+    }
+
+    @Transactional(readOnly = true)
+    public long getLatestSequence() {
+        return recipeChangeRepository.findLastSequence().orElse(0L);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isRetained(long since) {
+        return recipeChangeRepository.findFirstSequence().map(first -> since >= first - 1).orElse(true);
+    }
+
+    /**
+     * Removes the changes older than the retention, keeping the last one.
+     */
+    @Transactional
+    public int purge() {
+        return recipeChangeRepository.deleteChangedBefore(
+                Instant.now().minus(recipesProperties.getChanges().getRetention()));
+    }
+
+    private RecipeChange toChange(RecipeChangeEntry entry) {
+        return new RecipeChange(entry.getId(), entry.getType(), entry.getRecipeId(), entry.getChangedAt(),
+                entry.getType() == RecipeChangedEvent.Type.DELETED ? null : recipeMapper.toResponse(entry));
+    }
+}
@@ -0,0 +1,14 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class RecipeChangePage {
+    private final List<RecipeChange> changes;
+    // the last committed sequence when the page was read, at least the sequence of its last change
+    private final long latestSequence;
+}
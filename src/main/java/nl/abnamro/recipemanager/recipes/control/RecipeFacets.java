@@ -0,0 +1,20 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts over all recipes matching a search: the most used ingredients, most used first, and the number of recipes
+ * per vegetarian flag and per servings.
+ */
+@AllArgsConstructor
+@Getter
+public class RecipeFacets {
+    private final long total;
+    private final List<IngredientFacet> ingredients;
+    private final Map<Boolean, Long> vegetarian;
+    private final Map<Integer, Long> servings;
+}
@@ -0,0 +1,115 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Imports recipes from a JSON array or an NDJSON document without materializing it. Recipes are written in chunks,
+ * one transaction each, with batched inserts; a chunk that fails is retried recipe by recipe, so a bad recipe is
+ * reported instead of aborting the import.
+ */
+@Component
+public class RecipeImporter {
+    private final ObjectMapper objectMapper;
+    private final RecipeMapper recipeMapper;
+    private final RecipeRepository recipeRepository;
+    private final IngredientResolver ingredientResolver;
+    private final TransactionTemplate transactionTemplate;
+    private final RecipesProperties recipesProperties;
+
+    @Autowired
+    public RecipeImporter(ObjectMapper objectMapper, RecipeMapper recipeMapper, RecipeRepository recipeRepository,
+                          IngredientResolver ingredientResolver, TransactionTemplate transactionTemplate,
+                          RecipesProperties recipesProperties) {
+        this.objectMapper = objectMapper;
+        this.recipeMapper = recipeMapper;
+        this.recipeRepository = recipeRepository;
+        this.ingredientResolver = ingredientResolver;
+        this.transactionTemplate = transactionTemplate;
+        this.recipesProperties = recipesProperties;
+    }
+
+    public ImportResult importRecipes(InputStream inputStream) throws IOException {
+        var chunkSize = recipesProperties.getBulkImport().getChunkSize();
+        var chunk = new ArrayList<IndexedRequest>(chunkSize);
+        var failures = new ArrayList<ImportFailure>();
+        var imported = 0L;
+        var index = 0L;
+        // a root-level array is unwrapped by the iterator, so both formats are read the same way
+        try (var requests = objectMapper.readerFor(RecipeRequest.class).<RecipeRequest>readValues(inputStream)) {
+            while (requests.hasNextValue()) {
+                try {
+                    RecipeRequest request = requests.nextValue();
+                    if (request == null || request.getIngredients() == null || request.getIngredients().contains(null)) {
+                        failures.add(new ImportFailure(index, "ingredients must be a list of names"));
+                    } else {
+                        chunk.add(new IndexedRequest(index, request));
+                    }
+                } catch (JsonMappingException e) {
+                    // the iterator skips the rest of the invalid recipe
+                    failures.add(new ImportFailure(index, e.getOriginalMessage()));
+                }
+                index++;
+                if (chunk.size() == chunkSize) {
+                    imported += write(chunk, failures);
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            failures.add(new ImportFailure(index, "malformed document, import stopped: " + e.getOriginalMessage()));
+        }
+        imported += write(chunk, failures);
+        return new ImportResult(imported, failures);
+    }
+
+    private long write(List<IndexedRequest> chunk, List<ImportFailure> failures) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(chunk));
+            return chunk.size();
+        } catch (RuntimeException e) {
+            var imported = 0L;
+            for (var request : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(request)));
+                    imported++;
+                } catch (RuntimeException requestFailure) {
+                    failures.add(new ImportFailure(request.index(),
+                            NestedExceptionUtils.getMostSpecificCause(requestFailure).getMessage()));
+                }
+            }
+            return imported;
+        }
+    }
+
+    private void insert(List<IndexedRequest> chunk) {
+        var names = chunk.stream().flatMap(request -> request.request().getIngredients().stream()).distinct().toList();
+        var ingredients = new HashMap<String, Ingredient>();
+        ingredientResolver.resolve(names).forEach(ingredient -> ingredients.put(ingredient.getName(), ingredient));
+        recipeRepository.insertAll(chunk.stream().map(request -> {
+            var recipe = recipeMapper.toRecipe(request.request());
+            recipe.setIngredients(request.request().getIngredients().stream().map(ingredients::get).toList());
+            return recipe;
+        }).toList());
+    }
+
+    private record IndexedRequest(long index, RecipeRequest request) {
+    }
+}
@@ -0,0 +1,61 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangeEntry;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps between the recipe entity and its request/response representations with plain accessor calls,
+ * keeping reflection off the request path.
+ */
+@Component
+public class RecipeMapper {
+    public RecipeResponse toResponse(Recipe recipe) {
+        var recipeResponse = new RecipeResponse();
+        recipeResponse.setId(recipe.getId());
+        recipeResponse.setVegetarian(recipe.isVegetarian());
+        recipeResponse.setServings(recipe.getServings());
+        recipeResponse.setInstructions(recipe.getInstructions());
+        recipeResponse.setIngredients(recipe.getIngredients() == null ? null
+                : recipe.getIngredients().stream().map(Ingredient::getName).toList());
+        recipeResponse.setVersion(recipe.getVersion());
+        return recipeResponse;
+    }
+
+    public RecipeResponse toResponse(RecipeSearchEntry entry) {
+        var recipeResponse = new RecipeResponse();
+        recipeResponse.setId(entry.getId());
+        recipeResponse.setVegetarian(entry.isVegetarian());
+        recipeResponse.setServings(entry.getServings());
+        recipeResponse.setInstructions(entry.getInstructions());
+        recipeResponse.setIngredients(entry.getIngredientNames());
+        recipeResponse.setVersion(entry.getVersion());
+        return recipeResponse;
+    }
+
+    public RecipeResponse toResponse(RecipeChangeEntry change) {
+        var recipeResponse = new RecipeResponse();
+        recipeResponse.setId(change.getRecipeId());
+        recipeResponse.setVegetarian(change.isVegetarian());
+        recipeResponse.setServings(change.getServings());
+        recipeResponse.setInstructions(change.getInstructions());
+        recipeResponse.setIngredients(change.getIngredientNames());
+        recipeResponse.setVersion(change.getVersion());
+        return recipeResponse;
+    }
+
+    /**
+     * Maps the scalar fields of the request; ingredients have to be resolved to entities by the caller.
+     */
+    public Recipe toRecipe(RecipeRequest recipeRequest) {
+        var recipe = new Recipe();
+        recipe.setVegetarian(recipeRequest.isVegetarian());
+        recipe.setServings(recipeRequest.getServings());
+        recipe.setInstructions(recipeRequest.getInstructions());
+        return recipe;
+    }
+}
@@ -0,0 +1,29 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class RecipePage {
+    private final List<RecipeResponse> recipes;
+    /**
+     * Id of the last recipe on this page when more recipes follow, null on the last page.
+     */
+    private final Long nextAfterId;
+    /**
+     * Relevance score of the last recipe on this page for full-text searches, null otherwise.
+     */
+    private final Double nextAfterScore;
+    /**
+     * Statistics the full-text scores of this page were computed with, for the next page; null otherwise.
+     */
+    private final TextStatistics nextAfterStatistics;
+
+    public RecipePage(List<RecipeResponse> recipes, Long nextAfterId) {
+        this(recipes, nextAfterId, null, null);
+    }
+}
@@ -0,0 +1,84 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.extern.slf4j.Slf4j;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Keeps the {@code recipe_search} projection in line with the recipes. Unlike the in-memory indexes, it listens
+ * synchronously: the entries are written in the transaction that changes the recipes and commit or roll back with
+ * it. They are collected while the transaction runs and written in batches as it commits.
+ */
+@Slf4j
+@Component
+public class RecipeSearchProjection {
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final RecipeSearchEntryRepository recipeSearchEntryRepository;
+    private final RecipeRepository recipeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean exitOnReady;
+
+    @Autowired
+    public RecipeSearchProjection(RecipeSearchEntryRepository recipeSearchEntryRepository,
+                                  RecipeRepository recipeRepository, TransactionTemplate transactionTemplate,
+                                  @Value("${recipes.startup.exit-on-ready:false}") boolean exitOnReady) {
+        this.recipeSearchEntryRepository = recipeSearchEntryRepository;
+        this.recipeRepository = recipeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.exitOnReady = exitOnReady;
+    }
+
+    @EventListener
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recipeSearchEntryRepository.write(List.of(event));
+            return;
+        }
+        PendingRecipeChanges.of(this, pending -> recipeSearchEntryRepository.writeOnCommit(pending::changes))
+                .add(event);
+    }
+
+    /**
+     * Writes the entries of recipes that have none, such as recipes stored before the projection existed or seeded
+     * with plain SQL, one transaction per batch. Skipped by the startup run of the container build, which has no
+     * database; an unreachable database does not stop the application either, the next start fills the gaps.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (exitOnReady) {
+            return;
+        }
+        try {
+            boolean more;
+            do {
+                more = Boolean.TRUE.equals(transactionTemplate.execute(status -> backfillBatch()));
+            } while (more);
+        } catch (DataIntegrityViolationException e) {
+            // another instance is filling the same recipes
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Backfilling the recipe search projection failed", e);
+        }
+    }
+
+    private boolean backfillBatch() {
+        var ids = recipeSearchEntryRepository.findRecipeIdsWithoutEntry(BACKFILL_BATCH_SIZE);
+        recipeSearchEntryRepository.write(recipeRepository.findWithIngredientsByIdIn(ids).stream()
+                .map(recipe -> RecipeChangedEvent.of(RecipeChangedEvent.Type.CREATED, recipe))
+                .toList());
+        return ids.size() == BACKFILL_BATCH_SIZE;
+    }
+}
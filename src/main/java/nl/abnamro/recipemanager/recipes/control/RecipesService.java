@@ -1,78 +1,525 @@
 package nl.abnamro.recipemanager.recipes.control;
 
+import io.micrometer.core.annotation.Timed;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.boundary.RecipePatch;
 import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
 import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
 import nl.abnamro.recipemanager.recipes.entity.Ingredient;
 import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
 import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
 import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
-import org.modelmapper.ModelMapper;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntry;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class RecipesService {
-    private final ModelMapper modelMapper;
+    public static final String RECIPE_CACHE = "recipes";
+    public static final String SEARCH_CACHE = "recipeSearches";
+    private static final String SERVICE_TIMER = "recipes.service";
+    private static final int HYDRATION_BATCH_SIZE = 1000;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final RecipeMapper recipeMapper;
     private final RecipeRepository recipeRepository;
+    private final RecipeSearchEntryRepository recipeSearchEntryRepository;
     private final IngredientRepository ingredientRepository;
+    private final IngredientResolver ingredientResolver;
+    private final IngredientIndex ingredientIndex;
+    private final TextSearch textSearch;
+    private final RecipesProperties recipesProperties;
+    private final SearchMetrics searchMetrics;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public RecipesService(ModelMapper modelMapper, RecipeRepository recipeRepository,
-                          IngredientRepository ingredientRepository) {
-        this.modelMapper = modelMapper;
+    public RecipesService(RecipeMapper recipeMapper, RecipeRepository recipeRepository,
+                          RecipeSearchEntryRepository recipeSearchEntryRepository,
+                          IngredientRepository ingredientRepository, IngredientResolver ingredientResolver,
+                          IngredientIndex ingredientIndex, TextSearch textSearch, RecipesProperties recipesProperties,
+                          SearchMetrics searchMetrics,
+                          ApplicationEventPublisher eventPublisher) {
+        this.recipeMapper = recipeMapper;
         this.recipeRepository = recipeRepository;
+        this.recipeSearchEntryRepository = recipeSearchEntryRepository;
         this.ingredientRepository = ingredientRepository;
+        this.ingredientResolver = ingredientResolver;
+        this.ingredientIndex = ingredientIndex;
+        this.textSearch = textSearch;
+        this.recipesProperties = recipesProperties;
+        this.searchMetrics = searchMetrics;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns at most {@code limit} recipes matching the search criteria with an id greater than {@code afterId},
+     * ordered by id. Recipes are read in id-ordered batches from the {@code recipe_search} projection, one row
+     * per recipe without joins, so only the requested page is read. The ingredient filters are either answered by
+     * the {@link IngredientIndex} or evaluated on the projection's ingredient ids, see
+     * {@link RecipesProperties.IngredientFilter}.
+     * Pages are cached per normalized criteria until the next committed write, see {@link SearchCacheKeyGenerator}.
+     */
+    @Cacheable(cacheNames = SEARCH_CACHE, keyGenerator = SearchCacheKeyGenerator.NAME,
+            unless = "#result.recipes.size() > @recipesProperties.searchCache.maximumEntryRecipes"
+                    + " or @" + ReplicaLag.NAME + ".isRecentWrite()")
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    public RecipePage getRecipes(SearchCriteria searchCriteria, Long afterId, int limit) {
+        // search on exactly what the cache key represents
+        searchCriteria = searchCriteria.normalized();
+        var source = recipeSource(searchCriteria);
+        var indexed = recipesProperties.getSearch().getIngredientFilter() == RecipesProperties.IngredientFilter.INDEX;
+        var recipes = new ArrayList<RecipeResponse>(limit + 1);
+        var cursor = afterId == null ? 0L : afterId;
+        var fetched = 0L;
+        var mappingNanos = 0L;
+        while (recipes.size() <= limit) {
+            var batch = source.next(cursor, Math.min(limit + 1 - recipes.size(), HYDRATION_BATCH_SIZE));
+            fetched += batch.entries().size();
+            // the index is only a pre-filter: a write committed between the index lookup and the query
+            // can still change a recipe's ingredients, so the exact check is repeated on the mapped result
+            for (var entry : batch.entries()) {
+                var start = System.nanoTime();
+                var recipeResponse = recipeMapper.toResponse(entry);
+                mappingNanos += System.nanoTime() - start;
+                if (!indexed || searchCriteria.filterOnIngredients(recipeResponse)) {
+                    recipes.add(recipeResponse);
+                }
+            }
+            if (batch.exhausted()) {
+                break;
+            }
+            cursor = batch.lastScannedId();
+        }
+        searchMetrics.record("getRecipes", fetched, Math.min(recipes.size(), limit), mappingNanos);
+        if (recipes.size() <= limit) {
+            return new RecipePage(recipes, null);
+        }
+        var page = List.copyOf(recipes.subList(0, limit));
+        return new RecipePage(page, page.get(limit - 1).getId());
+    }
+
+    /**
+     * Returns at most {@code limit} recipes whose instructions contain every token of {@code text} and that match
+     * the search criteria, ordered by descending relevance. A page continues after the recipe identified by
+     * {@code afterScore} and {@code afterId}, both null for the first page, and is scored with the
+     * {@code statistics} of the first page; null to take the current ones.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    public RecipePage searchRecipes(String text, SearchCriteria searchCriteria, TextStatistics statistics,
+            Double afterScore, Long afterId, int limit) {
+        var ranking = statistics != null ? statistics : textSearch.statistics(text);
+        var recipes = new ArrayList<RecipeResponse>(limit + 1);
+        var scores = new ArrayList<Double>(limit + 1);
+        var fetched = 0L;
+        var mappingNanos = 0L;
+        var cursorScore = afterScore;
+        var cursorId = afterId;
+        while (recipes.size() <= limit) {
+            var size = Math.min(limit + 1 - recipes.size(), HYDRATION_BATCH_SIZE);
+            // ranked in pages after the cursor, so no more matches are read than filtering needs
+            var batch = textSearch.search(text, ranking, cursorScore, cursorId, size);
+            if (batch.isEmpty()) {
+                break;
+            }
+            var hydrated = new HashMap<Long, Recipe>();
+            recipeRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(
+                    batch.stream().map(ScoredRecipe::getRecipeId).toList(), searchCriteria.getIsVegetarian(),
+                    searchCriteria.getServings(), searchCriteria.getInstructions())
+                    .forEach(recipe -> hydrated.put(recipe.getId(), recipe));
+            fetched += hydrated.size();
+            for (var scoredRecipe : batch) {
+                var recipe = hydrated.get(scoredRecipe.getRecipeId());
+                if (recipe == null) {
+                    continue;
+                }
+                var start = System.nanoTime();
+                var recipeResponse = recipeMapper.toResponse(recipe);
+                mappingNanos += System.nanoTime() - start;
+                if (searchCriteria.filterOnIngredients(recipeResponse)) {
+                    recipes.add(recipeResponse);
+                    scores.add(scoredRecipe.getScore());
+                }
+            }
+            if (batch.size() < size) {
+                break;
+            }
+            var last = batch.get(batch.size() - 1);
+            cursorScore = last.getScore();
+            cursorId = last.getRecipeId();
+        }
+        searchMetrics.record("searchRecipes", fetched, Math.min(recipes.size(), limit), mappingNanos);
+        if (recipes.size() <= limit) {
+            return new RecipePage(recipes, null);
+        }
+        var page = List.copyOf(recipes.subList(0, limit));
+        return new RecipePage(page, page.get(limit - 1).getId(), scores.get(limit - 1), ranking);
+    }
+
+    /**
+     * Streams all recipes matching the search criteria to the consumer, ordered by id, without materializing the
+     * result. The ingredient filters are always evaluated in the database, the ingredients are read in the same
+     * query, and every recipe is detached once mapped.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    public void streamRecipes(SearchCriteria searchCriteria, Consumer<RecipeResponse> consumer) {
+        try (var recipes = recipeRepository.stream(searchCriteria.getIsVegetarian(), searchCriteria.getServings(),
+                searchCriteria.getInstructions(), searchCriteria.getIncludedIngredients(),
+                searchCriteria.getExcludedIngredients(), recipesProperties.getSearch().getStreamFetchSize())) {
+            recipes.forEach(recipe -> {
+                var recipeResponse = recipeMapper.toResponse(recipe);
+                recipeRepository.detach(recipe);
+                consumer.accept(recipeResponse);
+            });
+        }
+    }
+
+    private RecipeSource recipeSource(SearchCriteria searchCriteria) {
+        if (recipesProperties.getSearch().getIngredientFilter() == RecipesProperties.IngredientFilter.DATABASE) {
+            var ingredientIds = ingredientIds(searchCriteria);
+            var includedIds = ingredientIds(searchCriteria.getIncludedIngredients(), ingredientIds);
+            var excludedIds = ingredientIds(searchCriteria.getExcludedIngredients(), ingredientIds);
+            if (!allExist(searchCriteria.getIncludedIngredients(), includedIds)) {
+                return (afterId, size) -> new EntryBatch(List.of(), afterId, true);
+            }
+            return (afterId, size) -> scan(searchCriteria, includedIds, excludedIds, afterId, size);
+        }
+        RecipeSource scan = (afterId, size) -> scan(searchCriteria, null, null, afterId, size);
+
+        var includedIngredients = searchCriteria.getIncludedIngredients();
+        var excludedIngredients = searchCriteria.getExcludedIngredients();
+        if (includedIngredients != null && !includedIngredients.isEmpty()) {
+            var ids = ingredientIndex.matchIncluded(includedIngredients, excludedIngredients);
+            return (afterId, size) -> lookUp(ids, afterId, size, searchCriteria);
+        }
+        if (excludedIngredients == null || excludedIngredients.isEmpty()) {
+            return scan;
+        }
+        // drop excluded recipes before their ingredient names are mapped
+        var excludedIds = ingredientIndex.matchAny(excludedIngredients);
+        return (afterId, size) -> {
+            var batch = scan.next(afterId, size);
+            var entries = batch.entries().stream()
+                    .filter(entry -> !excludedIds.get(IngredientIndex.toIndex(entry.getId())))
+                    .toList();
+            return new EntryBatch(entries, batch.lastScannedId(), batch.exhausted());
+        };
+    }
+
+    private EntryBatch scan(SearchCriteria searchCriteria, long[] includedIds, long[] excludedIds, long afterId,
+                            int size) {
+        var entries = recipeSearchEntryRepository.scan(searchCriteria.getIsVegetarian(), searchCriteria.getServings(),
+                searchCriteria.getInstructions(), includedIds, excludedIds, afterId, size);
+        var lastScannedId = entries.isEmpty() ? afterId : entries.get(entries.size() - 1).getId();
+        return new EntryBatch(entries, lastScannedId, entries.size() < size);
     }
 
-    public List<RecipeResponse> getRecipes(SearchCriteria searchCriteria) {
-        var recipes = recipeRepository.findByIsVegestarianAndServingsAndInstructions(
+    private EntryBatch lookUp(BitSet ids, long afterId, int size, SearchCriteria searchCriteria) {
+        var batch = new ArrayList<Long>(size);
+        var id = ids.nextSetBit(IngredientIndex.toIndex(afterId) + 1);
+        while (id >= 0 && batch.size() < size) {
+            batch.add((long) id);
+            id = ids.nextSetBit(id + 1);
+        }
+        if (batch.isEmpty()) {
+            return new EntryBatch(List.of(), afterId, true);
+        }
+        var entries = recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(batch,
                 searchCriteria.getIsVegetarian(), searchCriteria.getServings(), searchCriteria.getInstructions());
-        return recipes.stream()
-                .map(recipe -> modelMapper.map(recipe, RecipeResponse.class))
-                .filter(searchCriteria::filterOnIngredients)
+        return new EntryBatch(entries, batch.get(batch.size() - 1), id < 0);
+    }
+
+    /**
+     * Counts the recipes matching the search criteria per ingredient, keeping the {@code ingredientLimit} most used,
+     * per vegetarian flag and per servings. One pass over the facet columns of the matching projection rows; no
+     * recipe is mapped.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    public RecipeFacets getFacets(SearchCriteria searchCriteria, int ingredientLimit) {
+        searchCriteria = searchCriteria.normalized();
+        var ingredientIds = ingredientIds(searchCriteria);
+        var includedIds = ingredientIds(searchCriteria.getIncludedIngredients(), ingredientIds);
+        var excludedIds = ingredientIds(searchCriteria.getExcludedIngredients(), ingredientIds);
+        var total = 0L;
+        var vegetarian = 0L;
+        var servings = new TreeMap<Integer, Long>();
+        var ingredientCounts = new HashMap<Long, long[]>();
+        if (allExist(searchCriteria.getIncludedIngredients(), includedIds)) {
+            try (var rows = recipeSearchEntryRepository.streamFacetRows(searchCriteria.getIsVegetarian(),
+                    searchCriteria.getServings(), searchCriteria.getInstructions(), includedIds, excludedIds,
+                    recipesProperties.getSearch().getStreamFetchSize())) {
+                for (var iterator = rows.iterator(); iterator.hasNext(); ) {
+                    var row = iterator.next();
+                    total++;
+                    vegetarian += row.isVegetarian() ? 1 : 0;
+                    servings.merge(row.servings(), 1L, Long::sum);
+                    for (var ingredientId : row.ingredientIds()) {
+                        ingredientCounts.computeIfAbsent(ingredientId, id -> new long[1])[0]++;
+                    }
+                }
+            }
+        }
+        var vegetarianCounts = new LinkedHashMap<Boolean, Long>();
+        vegetarianCounts.put(true, vegetarian);
+        vegetarianCounts.put(false, total - vegetarian);
+        return new RecipeFacets(total, topIngredients(ingredientCounts, ingredientLimit), vegetarianCounts, servings);
+    }
+
+    // one lookup for the included and excluded names
+    private Map<String, Long> ingredientIds(SearchCriteria searchCriteria) {
+        var names = new ArrayList<String>();
+        Stream.of(searchCriteria.getIncludedIngredients(), searchCriteria.getExcludedIngredients())
+                .filter(Objects::nonNull)
+                .forEach(names::addAll);
+        var ids = new HashMap<String, Long>();
+        if (!names.isEmpty()) {
+            ingredientRepository.findByNameIn(names)
+                    .forEach(ingredient -> ids.put(ingredient.getName(), ingredient.getId()));
+        }
+        return ids;
+    }
+
+    private static long[] ingredientIds(List<String> names, Map<String, Long> ids) {
+        if (names == null) {
+            return new long[0];
+        }
+        return names.stream().map(ids::get).filter(Objects::nonNull).mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    // an included ingredient that does not exist matches no recipe
+    private static boolean allExist(List<String> names, long[] ids) {
+        return names == null || ids.length == names.size();
+    }
+
+    private List<IngredientFacet> topIngredients(Map<Long, long[]> ingredientCounts, int limit) {
+        // a min-heap of the best candidates so far; ties go to the lower id, so the result is deterministic
+        Comparator<Map.Entry<Long, long[]>> byCount = Comparator.<Map.Entry<Long, long[]>>comparingLong(
+                entry -> entry.getValue()[0]).thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        var top = new PriorityQueue<>(limit + 1, byCount);
+        for (var entry : ingredientCounts.entrySet()) {
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        var names = new HashMap<Long, String>();
+        ingredientRepository.findAllById(top.stream().map(Map.Entry::getKey).toList())
+                .forEach(ingredient -> names.put(ingredient.getId(), ingredient.getName()));
+        return top.stream()
+                .sorted(byCount.reversed())
+                .map(entry -> new IngredientFacet(names.get(entry.getKey()), entry.getValue()[0]))
+                .toList();
+    }
+
+    /**
+     * Returns at most {@code limit} recipes that miss at most {@code maxMissing} of their ingredients from the
+     * pantry, fewest missing first, then by id. Candidates come from {@link IngredientIndex#matchPantry}; their
+     * missing ingredients are taken from the search projection, so a recipe changed in between is ranked on its
+     * current ingredients.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    public List<PantryMatch> getCookableRecipes(List<String> pantry, int maxMissing, int limit) {
+        var candidates = ingredientIndex.matchPantry(pantry, maxMissing, limit);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        var inPantry = new HashSet<>(pantry);
+        var entries = recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(
+                candidates.stream().map(PantryCandidate::getRecipeId).toList(), null, null, "");
+        return entries.stream()
+                .map(entry -> new PantryMatch(recipeMapper.toResponse(entry), entry.getIngredientNames().stream()
+                        .filter(name -> !inPantry.contains(name))
+                        .toList()))
+                .filter(match -> match.getMissingIngredients().size() <= maxMissing)
+                .sorted(Comparator.<PantryMatch>comparingInt(match -> match.getMissingIngredients().size())
+                        .thenComparing(match -> match.getRecipe().getId()))
                 .toList();
     }
 
+    @Transactional
+    @Timed(value = SERVICE_TIMER, histogram = true)
     public RecipeResponse addRecipe(RecipeRequest recipeRequest) {
-        var recipe = modelMapper.map(recipeRequest, Recipe.class);
-        recipe.setIngredients(recipeRequest.getIngredients().stream().map(this::fetchIngredient).toList());
-        return modelMapper.map(recipeRepository.save(recipe), RecipeResponse.class);
+        var recipe = recipeMapper.toRecipe(recipeRequest);
+        recipe.setIngredients(ingredientResolver.resolve(recipeRequest.getIngredients()));
+        return recipeMapper.toResponse(recipeRepository.save(recipe));
     }
 
+    @Transactional
+    @Timed(value = SERVICE_TIMER, histogram = true)
     public RecipeResponse updateRecipe(long id, RecipeRequest recipeRequest) {
-        if (recipeRepository.findById(id).isEmpty()) {
+        var existing = recipeRepository.findWithIngredientsById(id);
+        if (existing.isEmpty()) {
             return null;
         }
-        var recipe = modelMapper.map(recipeRequest, Recipe.class);
+        var recipe = existing.get();
+        recipe.setVegetarian(recipeRequest.isVegetarian());
+        recipe.setServings(recipeRequest.getServings());
+        recipe.setInstructions(recipeRequest.getInstructions());
+        // mutate the managed collection in place, so Hibernate rewrites the join table rows of this recipe only
+        recipe.getIngredients().clear();
+        recipe.getIngredients().addAll(ingredientResolver.resolve(recipeRequest.getIngredients()));
+        // flushed before mapping, so the response carries the incremented version
+        return recipeMapper.toResponse(recipeRepository.saveAndFlush(recipe));
+    }
+
+    /**
+     * Updates the recipe only if it is still at {@code expectedVersion}, with one conditional UPDATE instead of a
+     * read followed by a write. Returns null if the recipe does not exist.
+     *
+     * @throws OptimisticLockingFailureException if the recipe has another version
+     */
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    @Transactional
+    public RecipeResponse updateRecipe(long id, long expectedVersion, RecipeRequest recipeRequest) {
+        var updated = recipeRepository.updateIfVersion(id, expectedVersion, recipeRequest.isVegetarian(),
+                recipeRequest.getServings(), recipeRequest.getInstructions());
+        if (updated == 0) {
+            if (recipeRepository.findVersionById(id).isEmpty()) {
+                return null;
+            }
+            throw new OptimisticLockingFailureException("Recipe " + id + " is not at version " + expectedVersion);
+        }
+        var ingredients = ingredientResolver.resolve(recipeRequest.getIngredients());
+        recipeRepository.deleteIngredients(id);
+        if (!ingredients.isEmpty()) {
+            recipeRepository.insertIngredients(id, ingredients.stream().map(Ingredient::getId).toList());
+        }
+
+        var recipe = recipeMapper.toRecipe(recipeRequest);
         recipe.setId(id);
-        recipe.setIngredients(recipeRequest.getIngredients().stream().map(this::fetchIngredient).toList());
-        return modelMapper.map(recipeRepository.save(recipe), RecipeResponse.class);
+        recipe.setVersion(expectedVersion + 1);
+        recipe.setIngredients(ingredients);
+        // the update bypassed Hibernate's change listener, so indexes and caches are notified here
+        eventPublisher.publishEvent(RecipeChangedEvent.of(RecipeChangedEvent.Type.UPDATED, recipe));
+        return recipeMapper.toResponse(recipe);
     }
 
+    /**
+     * Changes only the fields present in the patch and applies the ingredient removals, then the additions, as
+     * targeted join table deletes and inserts. The recipe is read once, after the writes, for the response.
+     * An {@code expectedVersion} of null updates unconditionally. Returns null if the recipe does not exist.
+     *
+     * @throws OptimisticLockingFailureException if the recipe has another version
+     */
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    @Transactional
+    public RecipeResponse patchRecipe(long id, Long expectedVersion, RecipePatch recipePatch) {
+        var updated = recipeRepository.updateFields(id, expectedVersion, recipePatch.getIsVegetarian(),
+                recipePatch.getServings(), recipePatch.getInstructions());
+        if (updated == 0) {
+            if (expectedVersion == null || recipeRepository.findVersionById(id).isEmpty()) {
+                return null;
+            }
+            throw new OptimisticLockingFailureException("Recipe " + id + " is not at version " + expectedVersion);
+        }
+        var removed = recipePatch.getRemoveIngredients();
+        if (removed != null && !removed.isEmpty()) {
+            recipeRepository.deleteIngredientsByName(id, removed);
+        }
+        var added = recipePatch.getAddIngredients();
+        if (added != null && !added.isEmpty()) {
+            var ingredientIds = ingredientResolver.resolve(added.stream().distinct().toList()).stream()
+                    .map(Ingredient::getId)
+                    .toList();
+            recipeRepository.insertMissingIngredients(id, ingredientIds);
+        }
+
+        var recipe = recipeRepository.findWithIngredientsById(id).orElseThrow();
+        // the writes bypassed Hibernate's change listener, so indexes and caches are notified here
+        eventPublisher.publishEvent(RecipeChangedEvent.of(RecipeChangedEvent.Type.UPDATED, recipe));
+        return recipeMapper.toResponse(recipe);
+    }
+
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    @Transactional(readOnly = true)
+    public Long getRecipeVersion(long id) {
+        return recipeRepository.findVersionById(id).orElse(null);
+    }
+
+    /**
+     * Deletes the recipe with two statements, without loading it or its ingredients.
+     */
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    @Transactional
     public boolean deleteRecipe(long id) {
-        var recipe = recipeRepository.findById(id);
-        if (recipe.isEmpty()) {
-            return false;
+        return delete(List.of(id)) > 0;
+    }
+
+    /**
+     * Deletes all recipes matching the search criteria in one transaction: their ids are selected and locked once,
+     * then the recipes are deleted with set-based statements per chunk of ids. Returns the number of deleted recipes.
+     */
+    @Timed(value = SERVICE_TIMER, histogram = true)
+    @Transactional
+    public long deleteRecipes(SearchCriteria searchCriteria) {
+        searchCriteria = searchCriteria.normalized();
+        var ids = recipeRepository.findIdsForUpdate(searchCriteria.getIsVegetarian(), searchCriteria.getServings(),
+                searchCriteria.getInstructions(), searchCriteria.getIncludedIngredients(),
+                searchCriteria.getExcludedIngredients());
+        var deleted = 0L;
+        for (var start = 0; start < ids.size(); start += DELETE_BATCH_SIZE) {
+            deleted += delete(ids.subList(start, Math.min(start + DELETE_BATCH_SIZE, ids.size())));
+        }
+        return deleted;
+    }
+
+    // the ids are a single one or locked, so either all of them are deleted or none
+    private int delete(List<Long> ids) {
+        recipeRepository.deleteIngredientsOfRecipes(ids);
+        var deleted = recipeRepository.deleteRecipes(ids);
+        if (deleted == ids.size()) {
+            // the deletes bypassed Hibernate's change listener, so indexes and caches are notified here
+            ids.forEach(id -> eventPublisher.publishEvent(RecipeChangedEvent.deleted(id)));
         }
-        recipeRepository.delete(recipe.get());
-        return true;
+        return deleted;
     }
 
+    /**
+     * Reads through the recipe cache, which {@link RecipeCacheInvalidator} keeps in line with committed writes.
+     */
+    @Cacheable(cacheNames = RECIPE_CACHE, keyGenerator = RecipeCacheInvalidator.NAME,
+            unless = "#result == null or @" + ReplicaLag.NAME + ".isRecentWrite()")
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, histogram = true)
     public RecipeResponse getRecipe(long id) {
-        var recipe = recipeRepository.findById(id);
+        var recipe = recipeRepository.findWithIngredientsById(id);
         if (recipe.isEmpty()) {
             return null;
         }
-        return modelMapper.map(recipe.get(), RecipeResponse.class);
+        return recipeMapper.toResponse(recipe.get());
     }
 
-    private Ingredient fetchIngredient(String ingredientName) {
-        var ingredient = ingredientRepository.findByName(ingredientName);
-        if (ingredient.isEmpty()) {
-            return ingredientRepository.save(new Ingredient(ingredientName));
-        }
-        return ingredient.get();
+    private interface RecipeSource {
+        EntryBatch next(long afterId, int size);
+    }
+
+    private record EntryBatch(List<RecipeSearchEntry> entries, long lastScannedId, boolean exhausted) {
     }
 }
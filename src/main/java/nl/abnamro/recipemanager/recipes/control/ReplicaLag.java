@@ -0,0 +1,35 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Tells whether a write was committed so recently that a read replica may not show it yet. Results read in that
+ * window are not cached: the write's eviction has already happened, so a stale entry would stay.
+ */
+@Component(ReplicaLag.NAME)
+public class ReplicaLag {
+    public static final String NAME = "replicaLag";
+
+    private final long windowNanos;
+    private volatile long lastWriteNanos;
+
+    @Autowired
+    public ReplicaLag(RecipesProperties recipesProperties) {
+        var replica = recipesProperties.getReplica();
+        this.windowNanos = replica.getUrl() == null ? 0 : replica.getReadYourWritesWindow().toNanos();
+        this.lastWriteNanos = System.nanoTime() - windowNanos;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        lastWriteNanos = System.nanoTime();
+    }
+
+    public boolean isRecentWrite() {
+        return System.nanoTime() - lastWriteNanos < windowNanos;
+    }
+}
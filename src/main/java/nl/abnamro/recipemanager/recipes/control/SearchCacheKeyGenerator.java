@@ -0,0 +1,41 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keys cached search results on the normalized criteria and the write generation, which every committed recipe
+ * change advances. Results cached before a write are never looked up again and age out of the cache.
+ */
+@Component(SearchCacheKeyGenerator.NAME)
+public class SearchCacheKeyGenerator implements KeyGenerator {
+    public static final String NAME = "searchCacheKeyGenerator";
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Expects the arguments of {@link RecipesService#getRecipes}. The generation is read before the search runs,
+     * and only advanced after a write commits, so a result can never be stored under a newer generation than the
+     * data it was read from.
+     */
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return new SearchKey(((SearchCriteria) params[0]).normalized(), (Long) params[1], (int) params[2], generation.get());
+    }
+
+    // after the ingredient index, or a search in between could store the old index's result under the new generation
+    @Order(RecipeChangedEvent.INVALIDATION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    private record SearchKey(SearchCriteria searchCriteria, Long afterId, int limit, long generation) {
+    }
+}
@@ -15,6 +15,35 @@ public class SearchCriteria {
     private List<String> includedIngredients;
     private List<String> excludedIngredients;
 
+    /**
+     * Returns equivalent criteria in canonical form: ingredient lists sorted, without duplicates and without blank
+     * names, instructions trimmed. Criteria that select the same recipes compare equal once normalized.
+     */
+    public SearchCriteria normalized() {
+        return new SearchCriteria(isVegetarian, servings, instructions == null ? null : instructions.trim(),
+                normalize(includedIngredients), normalize(excludedIngredients));
+    }
+
+    private static List<String> normalize(List<String> ingredients) {
+        return ingredients == null ? null : ingredients.stream()
+                .filter(ingredient -> !ingredient.isBlank())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Returns whether any criterion narrows the selection; blank instructions and ingredient names do not.
+     */
+    public boolean hasFilter() {
+        return isVegetarian != null || servings != null || (instructions != null && !instructions.isBlank())
+                || hasIngredient(includedIngredients) || hasIngredient(excludedIngredients);
+    }
+
+    private static boolean hasIngredient(List<String> ingredients) {
+        return ingredients != null && ingredients.stream().anyMatch(ingredient -> !ingredient.isBlank());
+    }
+
     public boolean filterOnIngredients(RecipeResponse recipe) {
         if (includedIngredients != null && !recipe.getIngredients().containsAll(includedIngredients)) {
             return false;
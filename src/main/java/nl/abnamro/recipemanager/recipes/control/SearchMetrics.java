@@ -0,0 +1,33 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how much work a search did: rows fetched from the database versus rows returned after
+ * {@link SearchCriteria#filterOnIngredients}, and the time spent mapping entities to responses. Tagged by
+ * operation only, to keep the number of time series fixed.
+ */
+@Component
+public class SearchMetrics {
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public SearchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(String operation, long fetchedRows, long returnedRows, long mappingNanos) {
+        meterRegistry.counter("recipes.search.rows", "operation", operation, "stage", "fetched").increment(fetchedRows);
+        meterRegistry.counter("recipes.search.rows", "operation", operation, "stage", "returned").increment(returnedRows);
+        Timer.builder("recipes.mapping")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(mappingNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,24 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import java.util.List;
+
+/**
+ * Full-text search over recipe instructions: the text is tokenized and case-folded, and only recipes containing
+ * every token match.
+ */
+public interface TextSearch {
+    /**
+     * Returns the statistics a search for {@code text} scores with now, or null when scores only depend on the
+     * recipe itself.
+     */
+    TextStatistics statistics(String text);
+
+    /**
+     * Returns the ids of at most {@code limit} matching recipes ordered by descending relevance score, then by id.
+     * The result continues after the recipe identified by {@code afterScore} and {@code afterId}, both null to
+     * start with the most relevant recipe. Scores are computed with the given {@code statistics}, as returned by
+     * {@link #statistics} for the first page, so that the cursor of a later page still points at the same place;
+     * null to use the current ones.
+     */
+    List<ScoredRecipe> search(String text, TextStatistics statistics, Double afterScore, Long afterId, int limit);
+}
@@ -0,0 +1,17 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The corpus statistics relevance scores are computed with: the number of documents, their total length and, for
+ * each distinct term of the searched text in order, the number of documents containing it. Carried from page to page
+ * so that the recipes keep their scores, and the cursor its place, while the catalog changes.
+ */
+@AllArgsConstructor
+@Getter
+public class TextStatistics {
+    private final long documentCount;
+    private final long totalLength;
+    private final long[] documentFrequencies;
+}
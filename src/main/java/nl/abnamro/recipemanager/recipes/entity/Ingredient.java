@@ -10,6 +10,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import java.util.List;
 import java.util.Objects;
 
@@ -18,8 +19,12 @@ import java.util.Objects;
 @Getter
 @Entity
 public class Ingredient {
+    // shared with the native batch insert in IngredientBatchRepositoryImpl
+    public static final String SEQUENCE = "hibernate_sequence";
+
     @Id
-    @GeneratedValue(strategy= GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_id")
+    @SequenceGenerator(name = "ingredient_id", sequenceName = SEQUENCE, allocationSize = 1)
     private Long id;
 
     @Column(unique=true)
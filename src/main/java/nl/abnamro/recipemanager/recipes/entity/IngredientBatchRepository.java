@@ -0,0 +1,11 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import java.util.Collection;
+
+public interface IngredientBatchRepository {
+    /**
+     * Inserts the ingredients in one JDBC batch, silently skipping names that already exist, including names
+     * inserted concurrently by another transaction.
+     */
+    void insertMissing(Collection<String> names);
+}
@@ -0,0 +1,22 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+
+public class IngredientBatchRepositoryImpl implements IngredientBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IngredientBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertMissing(Collection<String> names) {
+        jdbcTemplate.batchUpdate(
+                "insert into ingredient (id, name) values (nextval('" + Ingredient.SEQUENCE + "'), ?) on conflict do nothing",
+                names.stream().map(name -> new Object[]{name}).toList());
+    }
+}
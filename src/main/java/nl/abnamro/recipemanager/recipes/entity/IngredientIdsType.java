@@ -0,0 +1,99 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Maps the ingredient ids of a {@link RecipeSearchEntry} to a {@code bigint array} column, sorted, so the database
+ * can filter on them. Hibernate has no array type of its own.
+ */
+public class IngredientIdsType implements UserType {
+    public static final String NAME = "nl.abnamro.recipemanager.recipes.entity.IngredientIdsType";
+
+    public static long[] sorted(Collection<Long> ids) {
+        return ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    public static Array toArray(Connection connection, long[] ids) throws SQLException {
+        return connection.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray());
+    }
+
+    public static long[] fromArray(Array array) throws SQLException {
+        if (array == null) {
+            return new long[0];
+        }
+        return Arrays.stream((Object[]) array.getArray()).mapToLong(id -> ((Number) id).longValue()).toArray();
+    }
+
+    @Override
+    public int[] sqlTypes() {
+        return new int[]{Types.ARRAY};
+    }
+
+    @Override
+    public Class<long[]> returnedClass() {
+        return long[].class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) {
+        return Arrays.equals((long[]) x, (long[]) y);
+    }
+
+    @Override
+    public int hashCode(Object x) {
+        return Arrays.hashCode((long[]) x);
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet resultSet, String[] names, SharedSessionContractImplementor session,
+                              Object owner) throws SQLException {
+        return fromArray(resultSet.getArray(names[0]));
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement statement, Object value, int index,
+                            SharedSessionContractImplementor session) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.ARRAY);
+        } else {
+            statement.setArray(index, toArray(statement.getConnection(), (long[]) value));
+        }
+    }
+
+    @Override
+    public Object deepCopy(Object value) {
+        return value == null ? null : ((long[]) value).clone();
+    }
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    @Override
+    public Serializable disassemble(Object value) {
+        return (Serializable) deepCopy(value);
+    }
+
+    @Override
+    public Object assemble(Serializable cached, Object owner) {
+        return deepCopy(cached);
+    }
+
+    @Override
+    public Object replace(Object original, Object target, Object owner) {
+        return deepCopy(original);
+    }
+}
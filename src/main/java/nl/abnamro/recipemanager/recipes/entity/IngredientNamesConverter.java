@@ -0,0 +1,37 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.List;
+
+/**
+ * Stores ingredient names as a JSON array.
+ */
+@Converter
+public class IngredientNamesConverter implements AttributeConverter<List<String>, String> {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<List<String>> NAMES = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(List<String> names) {
+        try {
+            return names == null ? null : OBJECT_MAPPER.writeValueAsString(names);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String json) {
+        try {
+            return json == null ? null : List.copyOf(OBJECT_MAPPER.readValue(json, NAMES));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable ingredient names: " + json, e);
+        }
+    }
+}
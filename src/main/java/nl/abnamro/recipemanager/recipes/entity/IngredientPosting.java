@@ -0,0 +1,9 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+public interface IngredientPosting {
+    Long getRecipeId();
+
+    Long getRecipeVersion();
+
+    String getIngredientName();
+}
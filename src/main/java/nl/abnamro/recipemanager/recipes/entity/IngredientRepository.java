@@ -1,9 +1,14 @@
 package nl.abnamro.recipemanager.recipes.entity;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
-public interface IngredientRepository extends CrudRepository<Ingredient, Long> {
-    Optional<Ingredient> findByName(String name);
+public interface IngredientRepository extends CrudRepository<Ingredient, Long>, IngredientBatchRepository {
+    List<Ingredient> findByNameIn(Collection<String> names);
+
+    @Query("select ingredient.name from Ingredient as ingredient")
+    List<String> findAllNames();
 }
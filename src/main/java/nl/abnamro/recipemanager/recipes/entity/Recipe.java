@@ -2,6 +2,7 @@ package nl.abnamro.recipemanager.recipes.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -10,16 +11,25 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
 import java.util.List;
 
 @Setter
 @Getter
 @Entity
 public class Recipe {
+    // pooled optimizer: one sequence call per allocationSize inserts, in line with hibernate.jdbc.batch_size
     @Id
-    @GeneratedValue(strategy= GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_id")
+    @SequenceGenerator(name = "recipe_id", sequenceName = "recipe_sequence", allocationSize = 50)
     private Long id;
 
+    // the default fills the column for rows created before it existed
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     private boolean isVegetarian;
 
     private int servings;
@@ -0,0 +1,17 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import java.util.List;
+
+public interface RecipeBatchRepository {
+    /**
+     * Persists new recipes, flushes them as JDBC batches and clears the persistence context, so memory stays flat
+     * when called repeatedly within one import.
+     */
+    void insertAll(List<Recipe> recipes);
+
+    /**
+     * Updates only the non-null scalar fields and increments the version, in one UPDATE, if the recipe exists and
+     * {@code expectedVersion} is null or matches. Bypasses the persistence context. Returns the number of updated rows.
+     */
+    int updateFields(long id, Long expectedVersion, Boolean isVegetarian, Integer servings, String instructions);
+}
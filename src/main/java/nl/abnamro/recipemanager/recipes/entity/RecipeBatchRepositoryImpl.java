@@ -0,0 +1,44 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecipeBatchRepositoryImpl implements RecipeBatchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<Recipe> recipes) {
+        recipes.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public int updateFields(long id, Long expectedVersion, Boolean isVegetarian, Integer servings, String instructions) {
+        var builder = entityManager.getCriteriaBuilder();
+        var update = builder.createCriteriaUpdate(Recipe.class);
+        var recipe = update.from(Recipe.class);
+        if (isVegetarian != null) {
+            update.set(recipe.<Boolean>get("isVegetarian"), isVegetarian);
+        }
+        if (servings != null) {
+            update.set(recipe.<Integer>get("servings"), servings);
+        }
+        if (instructions != null) {
+            update.set(recipe.<String>get("instructions"), instructions);
+        }
+        update.set(recipe.<Long>get("version"), builder.sum(recipe.get("version"), 1L));
+
+        var predicates = new ArrayList<Predicate>();
+        predicates.add(builder.equal(recipe.get("id"), id));
+        if (expectedVersion != null) {
+            predicates.add(builder.equal(recipe.get("version"), expectedVersion));
+        }
+        update.where(predicates.toArray(Predicate[]::new));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
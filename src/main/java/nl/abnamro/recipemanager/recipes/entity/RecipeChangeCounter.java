@@ -0,0 +1,24 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The single row of {@code recipe_change_counter}, holding the last assigned change sequence. Only mapped so the
+ * table exists in schemas created by Hibernate; it is written with plain JDBC, see
+ * {@link RecipeChangeCustomRepository#append}.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "recipe_change_counter")
+public class RecipeChangeCounter {
+    @Id
+    private Integer id;
+
+    private long lastSequence;
+}
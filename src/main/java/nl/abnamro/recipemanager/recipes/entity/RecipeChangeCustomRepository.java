@@ -0,0 +1,21 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+public interface RecipeChangeCustomRepository {
+    /**
+     * Appends the changes under the next sequence numbers, in the given order, with plain JDBC in the current
+     * transaction. The counter row stays locked until the transaction ends, so changes commit in sequence order
+     * and without gaps: a reader that sees a sequence also sees every change before it. To keep that lock short,
+     * append as the last write of a transaction.
+     */
+    void append(List<RecipeChangedEvent> events, Instant changedAt);
+
+    /**
+     * Appends the supplied changes when the current transaction commits, after Hibernate's last flush, so changes
+     * published by that flush are included and the counter row is locked only for the commit itself.
+     */
+    void appendOnCommit(Supplier<List<RecipeChangedEvent>> events);
+}
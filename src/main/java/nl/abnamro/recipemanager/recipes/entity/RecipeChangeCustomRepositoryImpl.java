@@ -0,0 +1,66 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class RecipeChangeCustomRepositoryImpl implements RecipeChangeCustomRepository {
+    private final IngredientNamesConverter ingredientNamesConverter = new IngredientNamesConverter();
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public RecipeChangeCustomRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void append(List<RecipeChangedEvent> events, Instant changedAt) {
+        if (events.isEmpty()) {
+            return;
+        }
+        var count = events.size();
+        if (advanceCounter(count) == 0) {
+            // schemas created by Hibernate start without the counter row; concurrent first writers may both get
+            // here, so the row is seeded only if still missing and then advanced like any other time
+            jdbcTemplate.update("insert into recipe_change_counter (id, last_sequence) "
+                    + "select 1, coalesce(max(id), 0) from recipe_change on conflict do nothing");
+            advanceCounter(count);
+        }
+        var lastSequence = jdbcTemplate.queryForObject(
+                "select last_sequence from recipe_change_counter where id = 1", Long.class);
+
+        var timestamp = Timestamp.from(changedAt);
+        var rows = new ArrayList<Object[]>(count);
+        var sequence = lastSequence - count;
+        for (var event : events) {
+            rows.add(new Object[]{++sequence, event.getRecipeId(), event.getType().name(), event.getVersion(),
+                    event.isVegetarian(), event.getServings(), event.getInstructions(),
+                    ingredientNamesConverter.convertToDatabaseColumn(event.getIngredientNames()), timestamp});
+        }
+        jdbcTemplate.batchUpdate("insert into recipe_change (id, recipe_id, type, version, is_vegetarian, servings, "
+                + "instructions, ingredient_names, changed_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private int advanceCounter(int count) {
+        return jdbcTemplate.update("update recipe_change_counter set last_sequence = last_sequence + ? where id = 1",
+                count);
+    }
+
+    @Override
+    public void appendOnCommit(Supplier<List<RecipeChangedEvent>> events) {
+        // Hibernate runs these processes when committing, after its flush and before the JDBC commit
+        entityManager.unwrap(SessionImplementor.class).getActionQueue()
+                .registerProcess(session -> append(events.get(), Instant.now()));
+    }
+}
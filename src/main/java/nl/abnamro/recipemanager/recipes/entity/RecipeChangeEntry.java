@@ -0,0 +1,49 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A committed recipe change in {@code recipe_change}, with the state of the recipe after it. Rows are appended by
+ * {@link RecipeChangeCustomRepository#append} and never updated.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "recipe_change")
+public class RecipeChangeEntry {
+    // the sequence number of the change
+    @Id
+    private Long id;
+
+    private long recipeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private RecipeChangedEvent.Type type;
+
+    private long version;
+
+    private boolean isVegetarian;
+
+    private int servings;
+
+    private String instructions;
+
+    // as rendered in responses, in the order of the recipe; empty for a deletion; unbounded
+    @Convert(converter = IngredientNamesConverter.class)
+    @Column(columnDefinition = "varchar")
+    private List<String> ingredientNames;
+
+    private Instant changedAt;
+}
@@ -0,0 +1,88 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Turns Hibernate flush events on {@link Recipe} into {@link RecipeChangedEvent}s, so every write path
+ * (service or repository) is covered. Hibernate events are used instead of JPA callbacks because a change
+ * that only touches the ingredient collection does not trigger {@code @PostUpdate}. Never lazy: nothing depends on
+ * it, and it must be registered before the first write.
+ */
+@Component
+@Lazy(false)
+public class RecipeChangeListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionUpdateEventListener {
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public RecipeChangeListener(ApplicationEventPublisher eventPublisher, EntityManagerFactory entityManagerFactory) {
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void register() {
+        var registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Recipe recipe) {
+            publish(RecipeChangedEvent.Type.CREATED, recipe);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Recipe recipe) {
+            publish(RecipeChangedEvent.Type.UPDATED, recipe);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Recipe recipe) {
+            eventPublisher.publishEvent(RecipeChangedEvent.deleted(recipe.getId()));
+        }
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        if (event.getAffectedOwnerOrNull() instanceof Recipe recipe) {
+            publish(RecipeChangedEvent.Type.UPDATED, recipe);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void publish(RecipeChangedEvent.Type type, Recipe recipe) {
+        eventPublisher.publishEvent(RecipeChangedEvent.of(type, recipe));
+    }
+}
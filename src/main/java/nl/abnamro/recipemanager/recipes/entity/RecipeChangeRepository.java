@@ -0,0 +1,33 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface RecipeChangeRepository extends Repository<RecipeChangeEntry, Long>, RecipeChangeCustomRepository {
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    List<RecipeChangeEntry> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
+    @Query("select min(change.id) from RecipeChangeEntry as change")
+    Optional<Long> findFirstSequence();
+
+    @Query("select max(change.id) from RecipeChangeEntry as change")
+    Optional<Long> findLastSequence();
+
+    /**
+     * Deletes the changes made before {@code before}, except the last one, so the first retained sequence always
+     * tells how far back changes go.
+     */
+    @Modifying
+    @Query("delete from RecipeChangeEntry as change where change.changedAt < :before " +
+            "and change.id < (select max(latest.id) from RecipeChangeEntry as latest)")
+    int deleteChangedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,43 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.With;
+
+import java.util.List;
+
+/**
+ * Published whenever a recipe is persisted, updated or removed, carrying a snapshot of the recipe state.
+ * Listeners that keep derived state (indexes, caches) in sync should use {@code @TransactionalEventListener}
+ * so they only see committed changes. Listeners updating in-memory indexes run in {@link #INDEX_ORDER}, before
+ * those invalidating results read from them, so an invalidated result cannot be read again from the old index.
+ */
+@AllArgsConstructor
+@Getter
+public class RecipeChangedEvent {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static final int INDEX_ORDER = 0;
+    public static final int INVALIDATION_ORDER = 1;
+
+    @With
+    private final Type type;
+    private final long recipeId;
+    private final long version;
+    private final boolean isVegetarian;
+    private final int servings;
+    private final String instructions;
+    private final List<Long> ingredientIds;
+    private final List<String> ingredientNames;
+
+    public static RecipeChangedEvent of(Type type, Recipe recipe) {
+        var ingredients = recipe.getIngredients() == null ? List.<Ingredient>of() : recipe.getIngredients();
+        return new RecipeChangedEvent(type, recipe.getId(), recipe.getVersion(), recipe.isVegetarian(),
+                recipe.getServings(), recipe.getInstructions(), ingredients.stream().map(Ingredient::getId).toList(),
+                ingredients.stream().map(Ingredient::getName).toList());
+    }
+
+    public static RecipeChangedEvent deleted(long recipeId) {
+        return new RecipeChangedEvent(Type.DELETED, recipeId, 0, false, 0, null, List.of(), List.of());
+    }
+}
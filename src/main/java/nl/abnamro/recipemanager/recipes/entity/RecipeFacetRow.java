@@ -0,0 +1,7 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+/**
+ * The columns of a {@link RecipeSearchEntry} that facets are counted on.
+ */
+public record RecipeFacetRow(boolean isVegetarian, int servings, long[] ingredientIds) {
+}
@@ -0,0 +1,7 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+public interface RecipeInstructions {
+    Long getId();
+
+    String getInstructions();
+}
@@ -1,16 +1,90 @@
 package nl.abnamro.recipemanager.recipes.entity;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface RecipeRepository extends CrudRepository<Recipe, Long> {
-    @Query("from Recipe as recipe " +
-            "where (:isVegetarian is null or recipe.isVegetarian = :isVegetarian)" +
+public interface RecipeRepository extends CrudRepository<Recipe, Long>, RecipeSearchRepository, RecipeBatchRepository {
+    @EntityGraph(attributePaths = "ingredients")
+    Optional<Recipe> findWithIngredientsById(long id);
+
+    @EntityGraph(attributePaths = "ingredients")
+    List<Recipe> findWithIngredientsByIdIn(Collection<Long> ids);
+
+    @Query("select distinct recipe from Recipe as recipe " +
+            "left join fetch recipe.ingredients " +
+            "where recipe.id in :ids " +
+            "and (:isVegetarian is null or recipe.isVegetarian = :isVegetarian)" +
             "and (:servings is null or recipe.servings = :servings)" +
-            "and (recipe.instructions like %:instructions%)")
-    List<Recipe> findByIsVegestarianAndServingsAndInstructions(@Param("isVegetarian") Boolean isVegetarian,
-        @Param("servings") Integer servings, @Param("instructions") String instructions);
+            "and (recipe.instructions like %:instructions%)" +
+            "order by recipe.id")
+    List<Recipe> findByIdsAndIsVegetarianAndServingsAndInstructions(@Param("ids") Collection<Long> ids,
+        @Param("isVegetarian") Boolean isVegetarian, @Param("servings") Integer servings,
+        @Param("instructions") String instructions);
+
+    @Query("select recipe.id as recipeId, recipe.version as recipeVersion, ingredient.name as ingredientName " +
+            "from Recipe as recipe left join recipe.ingredients as ingredient")
+    List<IngredientPosting> findAllIngredientPostings();
+
+    @Query("select recipe.id as id, recipe.instructions as instructions from Recipe as recipe")
+    List<RecipeInstructions> findAllInstructions();
+
+    <S extends Recipe> S saveAndFlush(S recipe);
+
+    @Query("select recipe.version from Recipe as recipe where recipe.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    /**
+     * Updates the scalar fields and increments the version only if the recipe is still at {@code version}.
+     * Bypasses the persistence context, so no change event is published for it.
+     */
+    @Modifying
+    @Query("update Recipe as recipe set recipe.isVegetarian = :isVegetarian, recipe.servings = :servings, " +
+            "recipe.instructions = :instructions, recipe.version = recipe.version + 1 " +
+            "where recipe.id = :id and recipe.version = :version")
+    int updateIfVersion(@Param("id") long id, @Param("version") long version,
+        @Param("isVegetarian") boolean isVegetarian, @Param("servings") int servings,
+        @Param("instructions") String instructions);
+
+    @Modifying
+    @Query(value = "delete from recipe_ingredients where recipe_id = :id", nativeQuery = true)
+    void deleteIngredients(@Param("id") long id);
+
+    @Modifying
+    @Query(value = "insert into recipe_ingredients (recipe_id, ingredient_id) " +
+            "select :id, ingredient.id from ingredient where ingredient.id in :ingredientIds", nativeQuery = true)
+    void insertIngredients(@Param("id") long id, @Param("ingredientIds") Collection<Long> ingredientIds);
+
+    @Modifying
+    @Query(value = "delete from recipe_ingredients where recipe_id = :id " +
+            "and ingredient_id in (select ingredient.id from ingredient where ingredient.name in :names)", nativeQuery = true)
+    int deleteIngredientsByName(@Param("id") long id, @Param("names") Collection<String> names);
+
+    /**
+     * Links the ingredients the recipe does not have yet, so the association keeps set semantics.
+     */
+    @Modifying
+    @Query(value = "insert into recipe_ingredients (recipe_id, ingredient_id) " +
+            "select :id, ingredient.id from ingredient where ingredient.id in :ingredientIds " +
+            "and not exists (select 1 from recipe_ingredients as linked " +
+            "where linked.recipe_id = :id and linked.ingredient_id = ingredient.id)", nativeQuery = true)
+    int insertMissingIngredients(@Param("id") long id, @Param("ingredientIds") Collection<Long> ingredientIds);
+
+    @Modifying
+    @Query(value = "delete from recipe_ingredients where recipe_id in :ids", nativeQuery = true)
+    void deleteIngredientsOfRecipes(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the recipes without loading them; their ingredient links must be deleted first. Bypasses the
+     * persistence context, so no change event is published for it.
+     */
+    @Modifying
+    @Query(value = "delete from recipe where id in :ids", nativeQuery = true)
+    int deleteRecipes(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,45 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.List;
+
+/**
+ * Denormalized copy of a recipe in {@code recipe_search}, one row per recipe, so searches read a single table
+ * without joins, ingredient filters included. Rows are written in the transaction of the recipe change, see
+ * {@link RecipeSearchEntryCustomRepository#write}.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "recipe_search")
+public class RecipeSearchEntry {
+    // the id of the recipe
+    @Id
+    private Long id;
+
+    private long version;
+
+    private boolean isVegetarian;
+
+    private int servings;
+
+    private String instructions;
+
+    // sorted; GIN-indexed in schema-postgresql.sql for the ingredient filters
+    @Type(type = IngredientIdsType.NAME)
+    @Column(columnDefinition = "bigint array")
+    private long[] ingredientIds;
+
+    // as rendered in responses, in the order of the recipe; unbounded like the ids
+    @Convert(converter = IngredientNamesConverter.class)
+    @Column(columnDefinition = "varchar")
+    private List<String> ingredientNames;
+}
@@ -0,0 +1,35 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public interface RecipeSearchEntryCustomRepository {
+    /**
+     * Applies the changes, at most one per recipe, with plain JDBC in the current transaction and one batch per
+     * statement: entries of deleted recipes are removed, created ones inserted and updated ones rewritten in place,
+     * or inserted when missing. Bypasses the persistence context, so it is safe to call while Hibernate flushes.
+     */
+    void write(List<RecipeChangedEvent> events);
+
+    /**
+     * Writes the supplied changes when the current transaction commits, after Hibernate's last flush, so all
+     * changes of the transaction are written in one go.
+     */
+    void writeOnCommit(Supplier<List<RecipeChangedEvent>> events);
+
+    /**
+     * Finds at most {@code limit} entries with an id greater than {@code afterId}, ordered by id, that match the
+     * scalar criteria, contain all included ingredients and none of the excluded ones. All filters are evaluated on
+     * {@code recipe_search} alone; null criteria and empty id arrays are ignored.
+     */
+    List<RecipeSearchEntry> scan(Boolean isVegetarian, Integer servings, String instructions,
+                                 long[] includedIngredientIds, long[] excludedIngredientIds, long afterId, int limit);
+
+    /**
+     * Streams the facet columns of all entries matching the criteria as in {@link #scan}, reading {@code fetchSize}
+     * rows per round trip. Must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<RecipeFacetRow> streamFacetRows(Boolean isVegetarian, Integer servings, String instructions,
+                                           long[] includedIngredientIds, long[] excludedIngredientIds, int fetchSize);
+}
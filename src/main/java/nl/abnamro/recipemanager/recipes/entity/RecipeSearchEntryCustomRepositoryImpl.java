@@ -0,0 +1,179 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class RecipeSearchEntryCustomRepositoryImpl implements RecipeSearchEntryCustomRepository {
+    private final IngredientNamesConverter ingredientNamesConverter = new IngredientNamesConverter();
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public RecipeSearchEntryCustomRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void write(List<RecipeChangedEvent> events) {
+        var deleted = new ArrayList<Object[]>();
+        var created = new ArrayList<RecipeChangedEvent>();
+        var updated = new ArrayList<RecipeChangedEvent>();
+        for (var event : events) {
+            switch (event.getType()) {
+                case DELETED -> deleted.add(new Object[]{event.getRecipeId()});
+                case CREATED -> created.add(event);
+                case UPDATED -> updated.add(event);
+            }
+        }
+        if (!deleted.isEmpty()) {
+            jdbcTemplate.batchUpdate("delete from recipe_search where id = ?", deleted);
+        }
+        if (!updated.isEmpty()) {
+            var counts = jdbcTemplate.batchUpdate("update recipe_search set version = ?, is_vegetarian = ?, "
+                    + "servings = ?, instructions = ?, ingredient_ids = ?, ingredient_names = ? where id = ?",
+                    updated.stream().map(this::values).toList());
+            // recipes written before the projection existed have no entry to update yet
+            for (var i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    created.add(updated.get(i));
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into recipe_search "
+                            + "(version, is_vegetarian, servings, instructions, ingredient_ids, ingredient_names, id) "
+                            + "values (?, ?, ?, ?, ?, ?, ?)",
+                    created.stream().map(this::values).toList());
+        }
+    }
+
+    @Override
+    public void writeOnCommit(Supplier<List<RecipeChangedEvent>> events) {
+        // Hibernate runs these processes when committing, after its flush and before the JDBC commit
+        entityManager.unwrap(SessionImplementor.class).getActionQueue()
+                .registerProcess(session -> write(events.get()));
+    }
+
+    private Object[] values(RecipeChangedEvent event) {
+        var ingredientIds = IngredientIdsType.sorted(event.getIngredientIds());
+        return new Object[]{event.getVersion(), event.isVegetarian(), event.getServings(), event.getInstructions(),
+                new AbstractSqlTypeValue() {
+                    @Override
+                    protected Object createTypeValue(Connection connection, int sqlType, String typeName)
+                            throws SQLException {
+                        return IngredientIdsType.toArray(connection, ingredientIds);
+                    }
+                },
+                ingredientNamesConverter.convertToDatabaseColumn(event.getIngredientNames()), event.getRecipeId()};
+    }
+
+    @Override
+    public List<RecipeSearchEntry> scan(Boolean isVegetarian, Integer servings, String instructions,
+                                        long[] includedIngredientIds, long[] excludedIngredientIds, long afterId,
+                                        int limit) {
+        var parameters = new HashMap<String, Object>();
+        var where = where(isVegetarian, servings, instructions, includedIngredientIds, excludedIngredientIds,
+                parameters);
+        parameters.put("afterId", afterId);
+        var query = entityManager.createNativeQuery("select recipe.* from recipe_search as recipe where " + where
+                + " and recipe.id > :afterId order by recipe.id", RecipeSearchEntry.class);
+        parameters.forEach(query::setParameter);
+        @SuppressWarnings("unchecked")
+        List<RecipeSearchEntry> entries = query.setMaxResults(limit)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+        return entries;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<RecipeFacetRow> streamFacetRows(Boolean isVegetarian, Integer servings, String instructions,
+                                                  long[] includedIngredientIds, long[] excludedIngredientIds,
+                                                  int fetchSize) {
+        var parameters = new HashMap<String, Object>();
+        var where = where(isVegetarian, servings, instructions, includedIngredientIds, excludedIngredientIds,
+                parameters);
+        var query = entityManager.createNativeQuery("select recipe.is_vegetarian, recipe.servings, "
+                        + "recipe.ingredient_ids from recipe_search as recipe where " + where)
+                .unwrap(NativeQuery.class)
+                .addScalar("is_vegetarian", StandardBasicTypes.BOOLEAN)
+                .addScalar("servings", StandardBasicTypes.INTEGER)
+                .addScalar("ingredient_ids", new CustomType(new IngredientIdsType()));
+        parameters.forEach(query::setParameter);
+        return ((Stream<Object[]>) query.setFetchSize(fetchSize).getResultStream())
+                .map(row -> new RecipeFacetRow((boolean) row[0], (int) row[1], (long[]) row[2]));
+    }
+
+    /**
+     * Builds the condition on {@code recipe}, a {@code recipe_search} row. Postgres tests the ingredient ids with
+     * the array operators its GIN index serves; other databases, such as H2 in the tests, test them one by one.
+     */
+    private String where(Boolean isVegetarian, Integer servings, String instructions, long[] includedIngredientIds,
+                         long[] excludedIngredientIds, Map<String, Object> parameters) {
+        var where = new StringBuilder("1 = 1");
+        if (isVegetarian != null) {
+            where.append(" and recipe.is_vegetarian = :isVegetarian");
+            parameters.put("isVegetarian", isVegetarian);
+        }
+        if (servings != null) {
+            where.append(" and recipe.servings = :servings");
+            parameters.put("servings", servings);
+        }
+        if (instructions != null) {
+            where.append(" and recipe.instructions like :instructions");
+            parameters.put("instructions", "%" + instructions + "%");
+        }
+        var arrayOperators = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQL81Dialect;
+        if (includedIngredientIds != null && includedIngredientIds.length > 0) {
+            if (arrayOperators) {
+                where.append(" and recipe.ingredient_ids @> cast(:includedIds as bigint array)");
+                parameters.put("includedIds", arrayLiteral(includedIngredientIds));
+            } else {
+                for (var i = 0; i < includedIngredientIds.length; i++) {
+                    where.append(" and array_contains(recipe.ingredient_ids, :included").append(i).append(")");
+                    parameters.put("included" + i, includedIngredientIds[i]);
+                }
+            }
+        }
+        if (excludedIngredientIds != null && excludedIngredientIds.length > 0) {
+            if (arrayOperators) {
+                where.append(" and not (recipe.ingredient_ids && cast(:excludedIds as bigint array))");
+                parameters.put("excludedIds", arrayLiteral(excludedIngredientIds));
+            } else {
+                for (var i = 0; i < excludedIngredientIds.length; i++) {
+                    where.append(" and not array_contains(recipe.ingredient_ids, :excluded").append(i).append(")");
+                    parameters.put("excluded" + i, excludedIngredientIds[i]);
+                }
+            }
+        }
+        return where.toString();
+    }
+
+    private static String arrayLiteral(long[] ids) {
+        return Arrays.stream(ids).mapToObj(Long::toString).collect(Collectors.joining(",", "{", "}"));
+    }
+}
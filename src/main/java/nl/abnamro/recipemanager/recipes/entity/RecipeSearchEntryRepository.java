@@ -0,0 +1,33 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+public interface RecipeSearchEntryRepository extends Repository<RecipeSearchEntry, Long>,
+        RecipeSearchEntryCustomRepository {
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    @Query("select entry from RecipeSearchEntry as entry " +
+            "where entry.id in :ids " +
+            "and (:isVegetarian is null or entry.isVegetarian = :isVegetarian)" +
+            "and (:servings is null or entry.servings = :servings)" +
+            "and (entry.instructions like %:instructions%)" +
+            "order by entry.id")
+    List<RecipeSearchEntry> findByIdsAndIsVegetarianAndServingsAndInstructions(@Param("ids") Collection<Long> ids,
+        @Param("isVegetarian") Boolean isVegetarian, @Param("servings") Integer servings,
+        @Param("instructions") String instructions);
+
+    /**
+     * Finds at most {@code limit} ids of recipes that have no entry yet, such as recipes written before the
+     * projection existed.
+     */
+    @Query(value = "select recipe.id from recipe as recipe where not exists " +
+            "(select 1 from recipe_search as entry where entry.id = recipe.id) order by recipe.id limit :limit",
+            nativeQuery = true)
+    List<Long> findRecipeIdsWithoutEntry(@Param("limit") int limit);
+}
@@ -0,0 +1,28 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface RecipeSearchRepository {
+    /**
+     * Finds the ids of all recipes matching the search criteria, without loading the recipes, and locks their rows
+     * until the end of the transaction. A recipe matches when it has all included ingredients and none of the
+     * excluded ones; null criteria are ignored.
+     */
+    List<Long> findIdsForUpdate(Boolean isVegetarian, Integer servings, String instructions,
+                                Collection<String> includedIngredients, Collection<String> excludedIngredients);
+
+    /**
+     * Streams all recipes matching the search criteria as in {@link #findIdsForUpdate}, ordered by id, reading
+     * {@code fetchSize} rows per round trip. Must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<Recipe> stream(Boolean isVegetarian, Integer servings, String instructions,
+                          Collection<String> includedIngredients, Collection<String> excludedIngredients,
+                          int fetchSize);
+
+    /**
+     * Removes the recipe from the persistence context, so streamed entities can be garbage collected.
+     */
+    void detach(Recipe recipe);
+}
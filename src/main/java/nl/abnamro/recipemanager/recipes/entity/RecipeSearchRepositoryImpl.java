@@ -0,0 +1,88 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class RecipeSearchRepositoryImpl implements RecipeSearchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsForUpdate(Boolean isVegetarian, Integer servings, String instructions,
+                                       Collection<String> includedIngredients,
+                                       Collection<String> excludedIngredients) {
+        var parameters = new HashMap<String, Object>();
+        var where = where(isVegetarian, servings, instructions, includedIngredients, excludedIngredients, parameters);
+        var query = entityManager.createQuery("select recipe.id from Recipe as recipe where " + where, Long.class);
+        parameters.forEach(query::setParameter);
+        return query.setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+
+    @Override
+    public Stream<Recipe> stream(Boolean isVegetarian, Integer servings, String instructions,
+                                 Collection<String> includedIngredients, Collection<String> excludedIngredients,
+                                 int fetchSize) {
+        var parameters = new HashMap<String, Object>();
+        var where = where(isVegetarian, servings, instructions, includedIngredients, excludedIngredients, parameters);
+        // rows of one recipe are adjacent when ordered by id, so the scroll returns each recipe once, with its
+        // ingredients, instead of loading them per recipe
+        var query = entityManager.createQuery("select recipe from Recipe as recipe"
+                + " left join fetch recipe.ingredients where " + where + " order by recipe.id", Recipe.class);
+        parameters.forEach(query::setParameter);
+        return query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public void detach(Recipe recipe) {
+        entityManager.detach(recipe);
+    }
+
+    /**
+     * Builds the condition on {@code recipe} for all search criteria.
+     */
+    private static String where(Boolean isVegetarian, Integer servings, String instructions,
+                                Collection<String> includedIngredients, Collection<String> excludedIngredients,
+                                Map<String, Object> parameters) {
+        var where = new StringBuilder("1 = 1");
+        if (isVegetarian != null) {
+            where.append(" and recipe.isVegetarian = :isVegetarian");
+            parameters.put("isVegetarian", isVegetarian);
+        }
+        if (servings != null) {
+            where.append(" and recipe.servings = :servings");
+            parameters.put("servings", servings);
+        }
+        if (instructions != null) {
+            where.append(" and recipe.instructions like :instructions");
+            parameters.put("instructions", "%" + instructions + "%");
+        }
+        if (includedIngredients != null && !includedIngredients.isEmpty()) {
+            var included = new LinkedHashSet<>(includedIngredients);
+            where.append(" and recipe.id in (select included.id from Recipe as included"
+                    + " join included.ingredients as ingredient"
+                    + " where ingredient.name in :includedIngredients"
+                    // the ingredients are a bag, so an ingredient linked twice is counted once
+                    + " group by included.id having count(distinct ingredient.id) = :includedCount)");
+            parameters.put("includedIngredients", included);
+            parameters.put("includedCount", (long) included.size());
+        }
+        if (excludedIngredients != null && !excludedIngredients.isEmpty()) {
+            where.append(" and not exists (select excluded.id from Recipe as excluded"
+                    + " join excluded.ingredients as ingredient"
+                    + " where excluded.id = recipe.id and ingredient.name in :excludedIngredients)");
+            parameters.put("excludedIngredients", excludedIngredients);
+        }
+        return where.toString();
+    }
+}
@@ -0,0 +1,105 @@
+-- Schema of the prod profile, which does not let Hibernate create or update it. Every statement is idempotent,
+-- so it also runs against a database created by ddl-auto=update.
+create sequence if not exists hibernate_sequence start with 1 increment by 1;
+create sequence if not exists recipe_sequence start with 1 increment by 50;
+
+create table if not exists ingredient (
+    id bigint not null,
+    name varchar(255),
+    primary key (id),
+    constraint uk_ingredient_name unique (name)
+);
+
+create table if not exists recipe (
+    id bigint not null,
+    version bigint default 0 not null,
+    instructions varchar(255),
+    is_vegetarian boolean not null,
+    servings integer not null,
+    primary key (id)
+);
+
+-- recipe ids came from hibernate_sequence before recipe_sequence; move the sequence past them, only ever forward
+-- so running instances keep their blocks. Recipe takes the block of 50 ids up to the value it reads.
+select setval('recipe_sequence', max(id) + 50, false) from recipe
+having max(id) >= coalesce((select last_value from pg_sequences
+                            where schemaname = current_schema and sequencename = 'recipe_sequence'), 0);
+
+-- full-text search on the instructions, see PostgresTextSearch; the expression must match its queries
+create index if not exists recipe_instructions_fts on recipe using gin (to_tsvector('simple', coalesce(instructions, '')));
+
+create table if not exists recipe_ingredients (
+    recipe_id bigint not null,
+    ingredient_id bigint not null,
+    constraint fk_recipe_ingredients_recipe foreign key (recipe_id) references recipe (id),
+    constraint fk_recipe_ingredients_ingredient foreign key (ingredient_id) references ingredient (id)
+);
+
+-- search projection: one row per recipe, written with the recipe; ingredient_ids holds the sorted ids, which the
+-- ingredient filters test with @> and &&, and ingredient_names a JSON array
+create table if not exists recipe_search (
+    id bigint not null,
+    version bigint not null,
+    instructions varchar(255),
+    is_vegetarian boolean not null,
+    servings integer not null,
+    ingredient_ids bigint array,
+    ingredient_names varchar,
+    primary key (id)
+);
+
+-- tables created while ingredient_ids held the ids as bytes: emptied, the backfill of RecipeSearchProjection writes
+-- them again. The body is quoted, as the script is split on semicolons.
+do '
+begin
+    if exists (select 1 from information_schema.columns where table_schema = current_schema
+               and table_name = ''recipe_search'' and column_name = ''ingredient_ids'' and data_type = ''bytea'') then
+        truncate recipe_search;
+        alter table recipe_search alter column ingredient_ids type bigint array using null;
+    end if;
+end';
+
+create index if not exists recipe_search_ingredient_ids on recipe_search using gin (ingredient_ids);
+
+-- tables created while ingredient_names was limited to 10000 characters; checked first, as the schema runs on
+-- every start and altering a column locks the table
+do '
+begin
+    if exists (select 1 from information_schema.columns where table_schema = current_schema
+               and table_name = ''recipe_search'' and column_name = ''ingredient_names''
+               and character_maximum_length is not null) then
+        alter table recipe_search alter column ingredient_names type varchar;
+    end if;
+end';
+
+-- change feed: committed recipe changes under a gap-free sequence, assigned from the single counter row
+create table if not exists recipe_change (
+    id bigint not null,
+    recipe_id bigint not null,
+    type varchar(16),
+    version bigint not null,
+    instructions varchar(255),
+    is_vegetarian boolean not null,
+    servings integer not null,
+    ingredient_names varchar,
+    changed_at timestamp,
+    primary key (id)
+);
+
+do '
+begin
+    if exists (select 1 from information_schema.columns where table_schema = current_schema
+               and table_name = ''recipe_change'' and column_name = ''ingredient_names''
+               and character_maximum_length is not null) then
+        alter table recipe_change alter column ingredient_names type varchar;
+    end if;
+end';
+
+create table if not exists recipe_change_counter (
+    id integer not null,
+    last_sequence bigint not null,
+    primary key (id)
+);
+
+insert into recipe_change_counter (id, last_sequence)
+select 1, coalesce(max(id), 0) from recipe_change on conflict do nothing;
@@ -0,0 +1,119 @@
+package nl.abnamro.recipemanager;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Starts the fast-start profile on H2. Hibernate validates the mapping against the tables created by
+ * schema-postgresql.sql, and lazily created beans must still see every write. H2 cannot create the full-text
+ * index of the script, so failing statements are skipped; missing tables still fail the validation. The database
+ * starts out with recipes whose ids came from hibernate_sequence, as before recipe_sequence existed.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ProductionProfileTests.URL,
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.sql.init.continue-on-error=true",
+		"spring.jpa.hibernate.ddl-auto=validate"})
+@AutoConfigureMockMvc
+@ActiveProfiles("prod")
+class ProductionProfileTests {
+	static final String URL = "jdbc:h2:mem:prod;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@BeforeAll
+	static void createRecipesOfHibernateSequence() {
+		var jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", "sa"));
+		jdbcTemplate.execute("""
+				create table recipe (id bigint not null, version bigint default 0 not null, instructions varchar(255),
+				is_vegetarian boolean not null, servings integer not null, primary key (id))""");
+		jdbcTemplate.update("""
+				insert into recipe (id, instructions, is_vegetarian, servings)
+				values (1, 'existing1', true, 2), (2, 'existing2', true, 2), (3, 'existing3', true, 2)""");
+		// the PostgreSQL function and catalog view the script positions recipe_sequence with; setval only as used there
+		jdbcTemplate.execute("""
+				create alias setval as $$
+				long setval(java.sql.Connection connection, String sequence, long value, boolean isCalled)
+						throws java.sql.SQLException {
+					try (var statement = connection.createStatement()) {
+						statement.execute("alter sequence " + sequence + " restart with " + value);
+					}
+					return value;
+				} $$""");
+		jdbcTemplate.execute("""
+				create view pg_sequences as
+				select sequence_schema schemaname, lower(sequence_name) sequencename,
+				case when base_value = start_value then null else base_value - increment end last_value
+				from information_schema.sequences""");
+	}
+
+	@Test
+	void prodProfile_withRecipesOfHibernateSequence_addsRecipesAfterThem() throws Exception {
+		var recipe = mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+						{"servings": 2, "instructions": "added", "ingredients": ["salt"], "vegetarian": true}"""))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertTrue(JsonPath.<Integer>read(recipe, "$.id") > 3);
+		mockMvc.perform(get("/api/recipes/1"))
+				.andExpect(jsonPath("$.instructions").value("existing1"));
+	}
+
+	@Test
+	void prodProfile_inMemoryIndexes_areBuiltAtStartup() {
+		var beanFactory = ((ConfigurableApplicationContext) applicationContext).getBeanFactory();
+
+		for (var name : List.of("ingredientIndex", "ingredientSuggester", "inMemoryTextSearch")) {
+			assertFalse(beanFactory.getBeanDefinition(name).isLazyInit(), name);
+			assertTrue(beanFactory.containsSingleton(name), name);
+		}
+	}
+
+	@Test
+	void prodProfile_withoutDocumentation_servesRecipes() throws Exception {
+		assertEquals(0, applicationContext.getBeanNamesForType(Docket.class).length);
+
+		var recipe = mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+						{"servings": 2, "instructions": "instructions1", "ingredients": ["salt"], "vegetarian": true}"""))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		var id = JsonPath.<Integer>read(recipe, "$.id");
+		mockMvc.perform(put("/api/recipes/" + id).contentType(MediaType.APPLICATION_JSON).content("""
+						{"servings": 2, "instructions": "instructions1", "ingredients": ["pepper"], "vegetarian": true}"""))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/recipes?includedIngredients=pepper"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].instructions", contains("instructions1")));
+		mockMvc.perform(get("/api/ingredients/suggestions?prefix=pe"))
+				.andExpect(jsonPath("$[*].name", contains("pepper")));
+	}
+}
@@ -0,0 +1,96 @@
+package nl.abnamro.recipemanager;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two embedded H2 databases stand in for primary and replica. Nothing replicates between them, so the database that
+ * answered a request shows in its response.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ReplicaRoutingTests.PRIMARY_URL,
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"recipes.replica.url=" + ReplicaRoutingTests.REPLICA_URL,
+		"recipes.replica.username=sa",
+		"recipes.replica.password=sa"})
+@AutoConfigureMockMvc
+class ReplicaRoutingTests {
+	static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+	static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+	private static final Cookie RECENT_WRITE = new Cookie("recipes-recent-write", "1");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@BeforeAll
+	static void createReplica() {
+		var replica = new DriverManagerDataSource(REPLICA_URL, "sa", "sa");
+		var populator = new ResourceDatabasePopulator(new ClassPathResource("schema-postgresql.sql"));
+		// H2 cannot create the full-text index
+		populator.setContinueOnError(true);
+		populator.execute(replica);
+		var jdbcTemplate = new JdbcTemplate(replica);
+		jdbcTemplate.update("""
+				insert into recipe (id, version, instructions, is_vegetarian, servings)
+				values (1000, 0, 'replicated', true, 2)""");
+		jdbcTemplate.update("""
+				insert into recipe_search (id, version, instructions, is_vegetarian, servings, ingredient_ids, ingredient_names)
+				values (1000, 0, 'replicated', true, 2, ?, '[]')""", (Object) new Long[0]);
+	}
+
+	@Test
+	void readOnlyRequests_withoutRecentWrite_readReplica() throws Exception {
+		mockMvc.perform(get("/api/recipes/1000").cookie(RECENT_WRITE))
+				.andExpect(status().isNotFound());
+
+		mockMvc.perform(get("/api/recipes/1000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.instructions").value("replicated"));
+		mockMvc.perform(get("/api/recipes"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].id", hasItem(1000)));
+	}
+
+	@Test
+	void write_goesToPrimary_andClientReadsItsOwnWrite() throws Exception {
+		var recipe = mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+						{"servings": 2, "instructions": "written", "ingredients": ["salt"], "vegetarian": true}"""))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.SET_COOKIE, containsString("recipes-recent-write=1")))
+				.andReturn().getResponse().getContentAsString();
+		var id = JsonPath.<Integer>read(recipe, "$.id");
+
+		mockMvc.perform(get("/api/recipes/" + id))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/api/recipes"))
+				.andExpect(jsonPath("$[*].instructions", not(hasItem("written"))));
+
+		mockMvc.perform(get("/api/recipes/" + id).cookie(RECENT_WRITE))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.instructions").value("written"));
+		mockMvc.perform(get("/api/recipes").cookie(RECENT_WRITE))
+				.andExpect(jsonPath("$[*].instructions", hasItem("written")));
+	}
+}
@@ -0,0 +1,138 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlFilterTest {
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final FilterChain blockingChain = (request, response) -> {
+        entered.countDown();
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    };
+
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        var recipesProperties = new RecipesProperties();
+        recipesProperties.getAdmission().setMaxConcurrent(1);
+        recipesProperties.getAdmission().setQueueCapacity(0);
+        recipesProperties.getAdmission().setRetryAfter(Duration.ofSeconds(3));
+        filter = new AdmissionControlFilter(recipesProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void doFilter_allSlotsBusyAndQueueFull_rejectsWithRetryAfter() throws Exception {
+        // Arrange
+        var first = CompletableFuture.runAsync(() -> filter(blockingChain));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        // Act
+        var response = filter((request, chainResponse) -> {
+        });
+
+        // Assert
+        assertEquals(503, response.getStatus());
+        assertEquals("3", response.getHeader("Retry-After"));
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void doFilter_slotReleased_admitsNextRequest() throws Exception {
+        // Arrange
+        release.countDown();
+        filter(blockingChain);
+
+        // Act
+        var response = filter((request, chainResponse) -> ((MockHttpServletResponse) chainResponse).setStatus(204));
+
+        // Assert
+        assertEquals(204, response.getStatus());
+        assertNull(response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void doFilter_nonApiRequest_isNotLimited() throws Exception {
+        // Arrange
+        var first = CompletableFuture.runAsync(() -> filter(blockingChain));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        // Act
+        var response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, (request, chainResponse) -> {
+        });
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void doFilter_eventStreamAccept_isLimited() throws Exception {
+        // Arrange
+        var first = CompletableFuture.runAsync(() -> filter(blockingChain));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        // Act
+        var request = new MockHttpServletRequest("GET", "/api/recipes");
+        request.addHeader("Accept", "text/event-stream");
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (chainRequest, chainResponse) -> {
+        });
+
+        // Assert
+        assertEquals(503, response.getStatus());
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void release_byHandler_admitsNextRequestWhileFirstRuns() throws Exception {
+        // Arrange
+        var first = CompletableFuture.runAsync(() -> filter((request, response) -> {
+            AdmissionControlFilter.release((HttpServletRequest) request);
+            blockingChain.doFilter(request, response);
+        }));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        // Act
+        var response = filter((request, chainResponse) -> ((MockHttpServletResponse) chainResponse).setStatus(204));
+
+        // Assert
+        assertEquals(204, response.getStatus());
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    private MockHttpServletResponse filter(FilterChain chain) {
+        var response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/recipes"), response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,55 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class IngredientsResourceTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void givenNewIngredients_whenSuggestIngredients_thenReturnMostUsedFirst() throws Exception {
+        addRecipe("[\"salt\", \"sage\"]");
+        addRecipe("[\"sage\", \"pepper\"]");
+
+        mockMvc.perform(get("/api/ingredients/suggestions?prefix=SA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("sage", "salt")))
+                .andExpect(jsonPath("$[*].recipeCount", contains(2, 1)));
+        mockMvc.perform(get("/api/ingredients/suggestions?prefix=sa&limit=1"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void givenNoMatchingIngredient_whenSuggestIngredients_thenReturnEmpty() throws Exception {
+        addRecipe("[\"salt\"]");
+
+        mockMvc.perform(get("/api/ingredients/suggestions?prefix=x"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/api/ingredients/suggestions?prefix=sa&limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void addRecipe(String ingredients) throws Exception {
+        mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+                        {"servings": 2, "instructions": "instructions", "ingredients": %s, "vegetarian": true}"""
+                        .formatted(ingredients)))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,91 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Compression is applied by the embedded server, so it is only visible over a real connection.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class RecipesResourceCompressionTest {
+    private static final int RECIPE_COUNT = 50;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    private List<Recipe> recipes;
+
+    @BeforeEach
+    void setUp() {
+        var salt = ingredientRepository.save(new Ingredient("salt"));
+        recipes = new ArrayList<>();
+        for (int i = 0; i < RECIPE_COUNT; i++) {
+            var recipe = new Recipe();
+            recipe.setInstructions("instructions " + i);
+            recipe.setIngredients(List.of(salt));
+            recipes.add(recipeRepository.save(recipe));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+        ingredientRepository.deleteAll();
+    }
+
+    @Test
+    void getRecipes_largeResponse_isCompressed() {
+        var response = get("/api/recipes", "application/json");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void getRecipes_largeCborResponse_isCompressed() {
+        var response = get("/api/recipes", "application/cbor");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void getRecipe_responseBelowThreshold_isNotCompressed() {
+        var response = get("/api/recipes/" + recipes.get(0).getId(), "application/json");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private ResponseEntity<byte[]> get(String path, String accept) {
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, accept);
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+    }
+}
@@ -0,0 +1,72 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class RecipesResourceMetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    private Recipe recipe;
+
+    @BeforeEach
+    void setUp() {
+        var salt = ingredientRepository.save(new Ingredient("salt"));
+        var pepper = ingredientRepository.save(new Ingredient("pepper"));
+        recipe = new Recipe();
+        recipe.setInstructions("instructions");
+        recipe.setIngredients(List.of(salt, pepper));
+        recipe = recipeRepository.save(recipe);
+    }
+
+    @Test
+    void getRecipe_recordsStatementsPerUriTemplate() throws Exception {
+        mockMvc.perform(get("/api/recipes/" + recipe.getId())).andExpect(status().isOk());
+
+        var statements = meterRegistry.get("recipes.sql.statements")
+                .tags("method", "GET", "uri", "/api/recipes/{id}")
+                .summary();
+        assertEquals(1, statements.count());
+        assertEquals(1, statements.totalAmount());
+    }
+
+    @Test
+    void getRecipes_recordsServiceLatencyRowsAndMapping() throws Exception {
+        mockMvc.perform(get("/api/recipes?excludedIngredients=pepper")).andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("recipes.service").tags("method", "getRecipes").timer().count());
+        assertEquals(1, meterRegistry.get("recipes.mapping").tags("operation", "getRecipes").timer().count());
+        assertEquals(0, meterRegistry.get("recipes.search.rows").tags("stage", "returned").counter().count());
+        assertNotNull(meterRegistry.get("http.server.requests").tags("uri", "/api/recipes").timer());
+        assertNotNull(meterRegistry.get("hikaricp.connections.acquire").timer());
+    }
+}
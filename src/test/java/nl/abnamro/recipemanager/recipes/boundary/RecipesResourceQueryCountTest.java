@@ -0,0 +1,252 @@
+package nl.abnamro.recipemanager.recipes.boundary;
+
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the number of SQL statements per endpoint. The budgets must not depend on the number of recipes
+ * returned or the size of a recipe; raising one of them means a fetch plan regressed.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class RecipesResourceQueryCountTest {
+    private static final int RECIPE_COUNT = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private RecipesProperties recipesProperties;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private List<Recipe> recipes;
+
+    @BeforeEach
+    void setUp() {
+        var salt = ingredientRepository.save(new Ingredient("salt"));
+        var pepper = ingredientRepository.save(new Ingredient("pepper"));
+        recipes = new ArrayList<>();
+        for (int i = 0; i < RECIPE_COUNT; i++) {
+            var recipe = new Recipe();
+            recipe.setInstructions("instructions " + i);
+            recipe.setIngredients(i % 2 == 0 ? List.of(salt, pepper) : List.of(salt));
+            recipes.add(recipeRepository.save(recipe));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipesProperties.getSearch().setIngredientFilter(RecipesProperties.IngredientFilter.INDEX);
+        recipeRepository.deleteAll();
+        ingredientRepository.deleteAll();
+    }
+
+    @Test
+    void getRecipes_withoutFilter_usesConstantStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(RECIPE_COUNT)));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void getRecipes_withIncludedIngredientsFromIndex_usesConstantStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes?includedIngredients=pepper"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize((RECIPE_COUNT + 1) / 2)));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void getRecipes_withExcludedIngredientsFromIndex_usesConstantStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes?excludedIngredients=pepper"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(RECIPE_COUNT / 2)));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void getRecipes_withIngredientsFromDatabase_usesConstantStatements() throws Exception {
+        recipesProperties.getSearch().setIngredientFilter(RecipesProperties.IngredientFilter.DATABASE);
+
+        mockMvc.perform(get("/api/recipes?includedIngredients=salt&excludedIngredients=pepper"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(RECIPE_COUNT / 2)));
+
+        // the ingredient ids, then the projection
+        assertStatements(2);
+    }
+
+    @Test
+    void getFacets_withIngredientFilter_usesConstantStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes?facets=true&includedIngredients=salt"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(RECIPE_COUNT)))
+                .andExpect(jsonPath("$.ingredients", hasSize(2)));
+
+        assertStatements(3);
+    }
+
+    @Test
+    void getRecipes_withText_usesConstantStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes?text=instructions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(RECIPE_COUNT)));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void getRecipes_equivalentCriteriaCached_usesNoStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes?includedIngredients=salt,pepper&instructions=instructions"))
+                .andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/api/recipes?includedIngredients=pepper,salt,pepper&instructions= instructions "))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize((RECIPE_COUNT + 1) / 2)));
+
+        assertStatements(0);
+    }
+
+    @Test
+    void getRecipes_cachedBeforeWrite_searchesAgain() throws Exception {
+        mockMvc.perform(get("/api/recipes?includedIngredients=pepper"))
+                .andExpect(status().isOk());
+        recipeRepository.delete(recipes.get(0));
+        statistics.clear();
+
+        mockMvc.perform(get("/api/recipes?includedIngredients=pepper"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize((RECIPE_COUNT + 1) / 2 - 1)));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void streamRecipes_withIngredientFilter_usesConstantStatements() throws Exception {
+        var result = mockMvc.perform(get("/api/recipes?includedIngredients=pepper").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // each recipe once, although it is read as one row per ingredient
+        assertEquals((RECIPE_COUNT + 1) / 2, body.lines().count());
+        assertTrue(body.lines().allMatch(line -> line.contains("\"salt\"") && line.contains("\"pepper\"")));
+        assertStatements(1);
+    }
+
+    @Test
+    void getRecipe_existingRecipe_usesSingleStatement() throws Exception {
+        mockMvc.perform(get("/api/recipes/" + recipes.get(0).getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingredients", hasSize(2)));
+
+        assertStatements(1);
+    }
+
+    @Test
+    void getRecipe_cachedRecipe_usesNoStatements() throws Exception {
+        mockMvc.perform(get("/api/recipes/" + recipes.get(0).getId()))
+                .andExpect(status().isOk());
+        statistics.clear();
+
+        mockMvc.perform(get("/api/recipes/" + recipes.get(0).getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingredients", hasSize(2)));
+
+        assertStatements(0);
+        assertEquals(0, statistics.getConnectCount(), "connections acquired");
+    }
+
+    @Test
+    void getRecipe_notModified_usesSingleStatement() throws Exception {
+        var recipe = recipes.get(0);
+
+        mockMvc.perform(get("/api/recipes/" + recipe.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"" + recipe.getVersion() + "\""))
+                .andExpect(status().isNotModified());
+
+        assertStatements(1);
+    }
+
+    @Test
+    void patchRecipe_ingredientDeltas_usesConstantStatements() throws Exception {
+        mockMvc.perform(patch("/api/recipes/" + recipes.get(0).getId()).contentType(MediaType.APPLICATION_JSON).content("""
+                        {"servings": 4, "addIngredients": ["cumin", "salt"], "removeIngredients": ["pepper"]}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingredients", containsInAnyOrder("salt", "cumin")));
+
+        // update, delete, resolve the ingredients, insert, read back
+        assertStatements(6);
+    }
+
+    @Test
+    void deleteRecipe_existingRecipe_usesTwoStatements() throws Exception {
+        mockMvc.perform(delete("/api/recipes/" + recipes.get(0).getId()))
+                .andExpect(status().isOk());
+
+        assertStatements(2);
+    }
+
+    @Test
+    void deleteRecipes_withIncludedIngredients_usesConstantStatements() throws Exception {
+        mockMvc.perform(delete("/api/recipes?includedIngredients=pepper"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted", is((RECIPE_COUNT + 1) / 2)));
+
+        assertStatements(3);
+    }
+
+    private void assertStatements(long expected) {
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL statements per request");
+    }
+}
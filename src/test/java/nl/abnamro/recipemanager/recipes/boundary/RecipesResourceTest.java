@@ -1,5 +1,8 @@
 package nl.abnamro.recipemanager.recipes.boundary;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import nl.abnamro.recipemanager.recipes.entity.Ingredient;
 import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
 import nl.abnamro.recipemanager.recipes.entity.Recipe;
@@ -8,24 +11,34 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import java.util.stream.StreamSupport;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -136,6 +149,50 @@ class RecipesResourceTest {
                 .andExpect(content().string("[]"));
     }
 
+    @Test
+    void givenRecipes_whenGetRecipesAsCbor_thenReturnCbor() throws Exception {
+        createTestRecipes();
+
+        var body = mockMvc.perform(get("/api/recipes").accept(MediaType.parseMediaType("application/cbor")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var recipes = new CBORMapper().readValue(body, RecipeResponse[].class);
+        assertEquals(3, recipes.length);
+        assertEquals(List.of("ingredient2", "ingredient3"), recipes[1].getIngredients());
+    }
+
+    @Test
+    void givenRecipes_whenGetRecipesAsSmile_thenReturnSmile() throws Exception {
+        createTestRecipes();
+
+        var body = mockMvc.perform(get("/api/recipes").accept(MediaType.parseMediaType("application/x-jackson-smile")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var recipes = new SmileMapper().readValue(body, RecipeResponse[].class);
+        assertEquals(3, recipes.length);
+        assertTrue(recipes[0].isVegetarian());
+        assertEquals(List.of("ingredient2", "ingredient3"), recipes[1].getIngredients());
+    }
+
+    @Test
+    void givenRecipes_whenGetRecipesWithIngredientDictionary_thenReferenceEachNameOnce() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(get("/api/recipes?ingredientDictionary=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingredients", contains("ingredient1", "ingredient2", "ingredient3", "ingredient4", "ingredient5")))
+                .andExpect(jsonPath("$.recipes", hasSize(3)))
+                .andExpect(jsonPath("$.recipes[0].vegetarian", is(true)))
+                .andExpect(jsonPath("$.recipes[1].ingredients", contains(1, 2)))
+                .andExpect(jsonPath("$.recipes[2].ingredients", contains(3, 4)));
+        mockMvc.perform(get("/api/recipes?ingredientDictionary=true&limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void givenRecipes_whenGetVegetarianRecipes_thenReturnFilteredRecipes() throws Exception {
         createTestRecipes();
@@ -158,6 +215,113 @@ class RecipesResourceTest {
                 .andExpect(jsonPath("$[1].instructions", is("instructions3")));
     }
 
+    @Test
+    void givenRecipes_whenGetRecipesWithLimit_thenReturnPageWithNextLink() throws Exception {
+        createTestRecipes();
+
+        var link = mockMvc.perform(get("/api/recipes?isVegetarian=false&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].instructions", is("instructions2")))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+                .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+
+        var next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        mockMvc.perform(get(next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].instructions", is("instructions3")))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void givenRecipes_whenGetRecipesWithInvalidCursor_thenReturnBadRequest() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(get("/api/recipes?cursor=invalid"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenRecipes_whenGetRecipesWithCursorOutsideRecipeIds_thenReturnBadRequest() throws Exception {
+        createTestRecipes();
+
+        for (var lastId : List.of("-5", "99999999999")) {
+            var cursor = Base64.getUrlEncoder().encodeToString(("id:" + lastId).getBytes(StandardCharsets.UTF_8));
+            mockMvc.perform(get("/api/recipes?includedIngredients=ingredient1&cursor=" + cursor))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void givenRecipes_whenGetRecipesWithText_thenReturnMatchingRecipes() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(get("/api/recipes?text=INSTRUCTIONS2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].instructions", is("instructions2")));
+    }
+
+    @Test
+    void givenRecipes_whenGetRecipesWithTextAndIdCursor_thenReturnBadRequest() throws Exception {
+        createTestRecipes();
+
+        var link = mockMvc.perform(get("/api/recipes?limit=1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        var cursor = link.substring(link.indexOf("cursor=") + "cursor=".length(), link.indexOf('>'));
+
+        mockMvc.perform(get("/api/recipes?text=instructions2&cursor=" + cursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenTextSearch_whenRecipesAddedBetweenPages_thenEveryMatchIsReturnedOnce() throws Exception {
+        for (var instructions : List.of("Boil the pasta.", "Boil the pasta, then drain the pasta.",
+                "Fry the onions and add the pasta to the pan.")) {
+            mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+                            {"servings": 2, "instructions": "%s", "ingredients": ["ingredient1"], "vegetarian": true}"""
+                            .formatted(instructions)))
+                    .andExpect(status().isOk());
+        }
+
+        var ids = new ArrayList<Integer>();
+        var uri = "/api/recipes?text=pasta&limit=1";
+        while (uri != null) {
+            var response = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse();
+            ids.addAll(JsonPath.read(response.getContentAsString(), "$[*].id"));
+            // changes the number of recipes and their average length, which the scores depend on
+            mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+                            {"servings": 2, "instructions": "Peel, cut and roast the potatoes in a hot oven until golden.",
+                            "ingredients": ["ingredient1"], "vegetarian": true}"""))
+                    .andExpect(status().isOk());
+            var link = response.getHeader(HttpHeaders.LINK);
+            uri = link == null ? null : link.substring(link.indexOf("/api/"), link.indexOf('>'));
+        }
+
+        assertEquals(3, ids.size());
+        assertEquals(3, ids.stream().distinct().count());
+    }
+
+    @Test
+    void givenRecipes_whenStreamRecipes_thenReturnNdjson() throws Exception {
+        createTestRecipes();
+
+        var result = mockMvc.perform(get("/api/recipes?excludedIngredients=ingredient1").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        var lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"instructions\":\"instructions2\""));
+        assertTrue(lines[1].contains("\"instructions\":\"instructions3\""));
+    }
+
     @Test
     void givenRecipes_whenAddRecipe_thenReturnAddedRecipe() throws Exception {
         createTestRecipes();
@@ -182,6 +346,153 @@ class RecipesResourceTest {
         assertEquals(4, StreamSupport.stream(recipes.spliterator(), false).count());
     }
 
+    @Test
+    void givenRecipes_whenGetFacets_thenReturnCountsOverAllMatches() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(get("/api/recipes?facets=true&facetLimit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(3)))
+                .andExpect(jsonPath("$.ingredients[*].name", contains("ingredient2")))
+                .andExpect(jsonPath("$.ingredients[0].recipeCount", is(2)))
+                .andExpect(jsonPath("$.vegetarian.true", is(1)))
+                .andExpect(jsonPath("$.vegetarian.false", is(2)))
+                .andExpect(jsonPath("$.servings.0", is(1)))
+                .andExpect(jsonPath("$.servings.5", is(1)));
+    }
+
+    @Test
+    void givenRecipes_whenGetFacetsWithIngredientFilters_thenCountOnlyMatches() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(get("/api/recipes?facets=true&includedIngredients=ingredient2&excludedIngredients=ingredient1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(1)))
+                .andExpect(jsonPath("$.ingredients[*].name", contains("ingredient2", "ingredient3")))
+                .andExpect(jsonPath("$.vegetarian.true", is(0)))
+                .andExpect(jsonPath("$.servings.5", is(1)));
+        mockMvc.perform(get("/api/recipes?facets=true&includedIngredients=ingredient6"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(0)))
+                .andExpect(jsonPath("$.ingredients", hasSize(0)));
+        mockMvc.perform(get("/api/recipes?facets=true&text=instructions"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/recipes?facets=true&ingredientDictionary=true"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenRecipes_whenGetCookableRecipes_thenReturnRecipesRankedByMissingIngredients() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(get("/api/recipes/cookable?pantry=ingredient1,ingredient2,ingredient6&maxMissing=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].recipe.instructions", contains("instructions1", "instructions2")))
+                .andExpect(jsonPath("$[0].missingIngredients", hasSize(0)))
+                .andExpect(jsonPath("$[1].missingIngredients", contains("ingredient3")));
+        mockMvc.perform(get("/api/recipes/cookable?pantry=ingredient1&maxMissing=6"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenRecipeWithoutIngredients_whenGetCookableRecipes_thenReturnItWithNoneMissing() throws Exception {
+        mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+                        {"servings": 2, "instructions": "instructions4", "ingredients": [], "vegetarian": true}"""))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/recipes/cookable?pantry=ingredient1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].recipe.instructions", contains("instructions4")))
+                .andExpect(jsonPath("$[0].missingIngredients", hasSize(0)));
+    }
+
+    @Test
+    void givenChanges_whenGetChangesSinceSequence_thenReturnLaterChangesInPages() throws Exception {
+        var recipes = createTestRecipes();
+        var since = JsonPath.<Integer>read(mockMvc.perform(get("/api/recipes/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes", hasSize(0)))
+                .andReturn().getResponse().getContentAsString(), "$.latestSequence");
+
+        mockMvc.perform(put("/api/recipes/" + recipes.get(0).getId()).contentType(MediaType.APPLICATION_JSON).content("""
+                        {"servings": 7, "instructions": "instructions4", "ingredients": ["ingredient5"], "vegetarian": true}"""))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/recipes/" + recipes.get(1).getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/recipes/changes?since=" + since + "&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("since=" + (since + 1))))
+                .andExpect(jsonPath("$.changes[*].type", contains("UPDATED")))
+                .andExpect(jsonPath("$.changes[0].recipe.instructions", is("instructions4")))
+                .andExpect(jsonPath("$.latestSequence", is(since + 2)));
+        mockMvc.perform(get("/api/recipes/changes?since=" + (since + 1)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(jsonPath("$.changes[*].type", contains("DELETED")))
+                .andExpect(jsonPath("$.changes[0].recipeId", is(recipes.get(1).getId().intValue())))
+                .andExpect(jsonPath("$.changes[0].recipe", nullValue()));
+    }
+
+    @Test
+    void givenEventStream_whenAddRecipe_thenStreamChange() throws Exception {
+        var stream = mockMvc.perform(get("/api/recipes/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        mockMvc.perform(post("/api/recipes").contentType(MediaType.APPLICATION_JSON).content("""
+                        {"servings": 2, "instructions": "instructions4", "ingredients": ["ingredient1"], "vegetarian": true}"""))
+                .andExpect(status().isOk());
+
+        // the event is written in parts, so wait until its blank line terminates it
+        var createdEvent = Pattern.compile("event:created\ndata:([^\n]*)\n\n");
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        var event = createdEvent.matcher(stream.getContentAsString());
+        while (!event.find()) {
+            assertTrue(System.nanoTime() < deadline, stream.getContentAsString());
+            Thread.sleep(10);
+            event = createdEvent.matcher(stream.getContentAsString());
+        }
+        assertTrue(event.group(1).contains("\"instructions\":\"instructions4\""), event.group(1));
+    }
+
+    @Test
+    void givenRecipes_whenImportRecipeArray_thenRecipesAreSearchable() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(post("/api/recipes/import").contentType(MediaType.APPLICATION_JSON).content("""
+                        [
+                          {"servings": 2, "instructions": "instructions4", "ingredients": ["ingredient1", "ingredient6"], "vegetarian": true},
+                          {"servings": 3, "instructions": "instructions5", "ingredients": ["ingredient6"], "vegetarian": false}
+                        ]"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.failures", hasSize(0)));
+
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient6"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].instructions", contains("instructions4", "instructions5")));
+    }
+
+    @Test
+    void givenRecipes_whenImportNdjsonWithInvalidRecipes_thenReportFailuresAndImportRest() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(post("/api/recipes/import").contentType(MediaType.APPLICATION_NDJSON).content("""
+                        {"servings": 2, "instructions": "instructions4", "ingredients": ["ingredient5"], "vegetarian": true}
+                        {"servings": "many", "instructions": "instructions5", "ingredients": ["ingredient5"], "vegetarian": true}
+                        {"servings": 2, "instructions": "instructions6", "vegetarian": true}
+                        {"servings": 2, "instructions": "%s", "ingredients": ["ingredient6"], "vegetarian": true}
+                        {"servings": 2, "instructions": "instructions7", "ingredients": ["ingredient6"], "vegetarian": true}
+                        """.formatted("x".repeat(300))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.failures[*].index", contains(1, 2, 3)));
+
+        var recipes = recipeRepository.findAll();
+        assertEquals(5, StreamSupport.stream(recipes.spliterator(), false).count());
+    }
+
     @Test
     void givenRecipes_whenUpdateRecipe_thenReturnUpdatedRecipe() throws Exception {
         var recipes = createTestRecipes();
@@ -207,6 +518,228 @@ class RecipesResourceTest {
         assertEquals(3, StreamSupport.stream(newRecipes.spliterator(), false).count());
     }
 
+    @Test
+    void givenCachedRecipe_whenUpdateRecipe_thenGetRecipeReturnsUpdatedRecipe() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+        mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(jsonPath("$.instructions", is("instructions1")));
+
+        mockMvc.perform(put("/api/recipes/" + recipeId).contentType(MediaType.APPLICATION_JSON).content("""
+                        {
+                          "servings": 7,
+                          "instructions": "instructions4",
+                          "ingredients": ["ingredient5"],
+                          "vegetarian": true
+                        }"""))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.instructions", is("instructions4")))
+                .andExpect(jsonPath("$.ingredients", contains("ingredient5")));
+    }
+
+    @Test
+    void givenCachedRecipe_whenDeleteRecipe_thenGetRecipeReturnsNotFound() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+        mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/recipes/" + recipeId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void givenRecipes_whenDeleteRecipesWithIngredient_thenDeleteMatchingRecipesOnly() throws Exception {
+        var recipes = createTestRecipes();
+        mockMvc.perform(get("/api/recipes/" + recipes.get(0).getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/recipes?includedIngredients=ingredient2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted", is(2)));
+
+        mockMvc.perform(get("/api/recipes/" + recipes.get(0).getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/recipes"))
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient2"))
+                .andExpect(jsonPath("$", hasSize(0)));
+        assertEquals(5, ingredientRepository.count());
+    }
+
+    @Test
+    void givenRecipes_whenDeleteRecipesWithoutOrWithBlankFilters_thenReturnBadRequest() throws Exception {
+        createTestRecipes();
+
+        mockMvc.perform(delete("/api/recipes"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/api/recipes").param("instructions", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/api/recipes").param("excludedIngredients", " ", ""))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(3, recipeRepository.count());
+    }
+
+    @Test
+    void givenRecipe_whenGetRecipeWithCurrentETag_thenReturnNotModified() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+        var etag = mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/recipes/" + recipeId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void givenRecipe_whenUpdateRecipeWithCurrentETag_thenReturnUpdatedRecipeWithNewETag() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+        var etag = mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        var newEtag = mockMvc.perform(put("/api/recipes/" + recipeId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("""
+                        {
+                          "servings": 7,
+                          "instructions": "instructions4",
+                          "ingredients": ["ingredient1", "ingredient6"],
+                          "vegetarian": true
+                        }"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.instructions", is("instructions4")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+
+        mockMvc.perform(get("/api/recipes/" + recipeId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, newEtag))
+                .andExpect(jsonPath("$.instructions", is("instructions4")))
+                .andExpect(jsonPath("$.ingredients", containsInAnyOrder("ingredient1", "ingredient6")));
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient6"))
+                .andExpect(jsonPath("$[*].instructions", contains("instructions4")));
+    }
+
+    @Test
+    void givenRecipe_whenUpdateRecipeWithStaleETag_thenReturnPreconditionFailed() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+        var request = """
+                {
+                  "servings": 7,
+                  "instructions": "instructions4",
+                  "ingredients": ["ingredient1"],
+                  "vegetarian": true
+                }""";
+        var etag = mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(put("/api/recipes/" + recipeId).contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/recipes/" + recipeId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/recipes/" + (recipeId + 1000)).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void givenRecipe_whenPatchRecipe_thenChangeOnlySuppliedFields() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+
+        mockMvc.perform(patch("/api/recipes/" + recipeId).contentType(MediaType.APPLICATION_JSON).content("""
+                        {"servings": 7}"""))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.servings", is(7)))
+                .andExpect(jsonPath("$.instructions", is("instructions1")))
+                .andExpect(jsonPath("$.vegetarian", is(recipes.get(0).isVegetarian())))
+                .andExpect(jsonPath("$.ingredients", containsInAnyOrder("ingredient1", "ingredient2")));
+    }
+
+    @Test
+    void givenRecipe_whenPatchRecipeIngredients_thenApplyDeltasAsSet() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+
+        mockMvc.perform(patch("/api/recipes/" + recipeId).contentType(MediaType.APPLICATION_JSON).content("""
+                        {
+                          "addIngredients": ["ingredient1", "ingredient6", "ingredient6"],
+                          "removeIngredients": ["ingredient2", "ingredient7"]
+                        }"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ingredients", containsInAnyOrder("ingredient1", "ingredient6")));
+
+        mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(jsonPath("$.ingredients", containsInAnyOrder("ingredient1", "ingredient6")));
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient6"))
+                .andExpect(jsonPath("$[*].instructions", contains("instructions1")));
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient2"))
+                .andExpect(jsonPath("$[*].instructions", not(hasItem("instructions1"))));
+    }
+
+    @Test
+    void givenRecipe_whenPatchRecipeWithStaleETag_thenReturnPreconditionFailed() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(0).getId();
+        var etag = mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        var newEtag = mockMvc.perform(patch("/api/recipes/" + recipeId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("""
+                        {"instructions": "instructions4"}"""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+
+        mockMvc.perform(patch("/api/recipes/" + recipeId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("""
+                        {"instructions": "instructions5"}"""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/recipes/" + (recipeId + 1000)).contentType(MediaType.APPLICATION_JSON).content("""
+                        {"instructions": "instructions5"}"""))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/recipes/" + recipeId))
+                .andExpect(jsonPath("$.instructions", is("instructions4")));
+    }
+
+    @Test
+    void givenRecipes_whenUpdateRecipeIngredients_thenSearchReturnsUpdatedRecipe() throws Exception {
+        var recipes = createTestRecipes();
+        var recipeId = recipes.get(2).getId();
+
+        mockMvc.perform(put("/api/recipes/" + recipeId).contentType(MediaType.APPLICATION_JSON).content("""
+                        {
+                          "servings": 0,
+                          "instructions": "instructions3",
+                          "ingredients": [
+                            "ingredient2"
+                          ],
+                          "vegetarian": false
+                        }"""))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)));
+        mockMvc.perform(get("/api/recipes?includedIngredients=ingredient4"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+    }
+
     @Test
     void givenRecipes_whenUpdateNonExistingRecipe_thenReturnNotFound() throws Exception {
         createTestRecipes();
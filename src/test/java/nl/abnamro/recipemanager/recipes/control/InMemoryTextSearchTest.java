@@ -0,0 +1,105 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTextSearchTest {
+    private InMemoryTextSearch textSearch;
+
+    @BeforeEach
+    void setUp() {
+        textSearch = new InMemoryTextSearch(null);
+        textSearch.put(1, "Boil the pasta, then drain the pasta.");
+        textSearch.put(2, "Fry the onions and add the pasta to the pan with a lot of other ingredients.");
+        textSearch.put(3, "Bake the bread.");
+    }
+
+    @Test
+    void search_differentCase_matchesCaseFolded() {
+        // Act
+        var recipes = textSearch.search("BREAD", null, null, null, 10);
+
+        // Assert
+        assertEquals(List.of(3L), ids(recipes));
+    }
+
+    @Test
+    void search_multipleTokens_requiresAllTokens() {
+        // Act
+        var recipes = textSearch.search("pasta, onions", null, null, null, 10);
+
+        // Assert
+        assertEquals(List.of(2L), ids(recipes));
+    }
+
+    @Test
+    void search_matchingRecipes_ranksByRelevance() {
+        // Act
+        var recipes = textSearch.search("pasta", null, null, null, 10);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), ids(recipes));
+        assertTrue(recipes.get(0).getScore() > recipes.get(1).getScore());
+    }
+
+    @Test
+    void search_afterCursorWithLimit_returnsNextMatchesOnly() {
+        // Arrange
+        textSearch.put(4, "Boil the pasta.");
+        var first = textSearch.search("pasta", null, null, null, 2);
+
+        // Act
+        var next = textSearch.search("pasta", null, first.get(1).getScore(), first.get(1).getRecipeId(), 2);
+
+        // Assert
+        assertEquals(2, first.size());
+        assertEquals(List.of(2L), ids(next));
+    }
+
+    @Test
+    void search_withStatisticsOfFirstPage_continuesWhileRecipesChange() {
+        // Arrange
+        textSearch.put(4, "Boil the pasta.");
+        var statistics = textSearch.statistics("pasta");
+        var all = textSearch.search("pasta", statistics, null, null, 10);
+        var first = textSearch.search("pasta", statistics, null, null, 2);
+        textSearch.remove(3);
+        textSearch.put(5, "Peel the potatoes, cut them in wedges and roast them in a hot oven until golden brown.");
+
+        // Act
+        var next = textSearch.search("pasta", statistics, first.get(1).getScore(), first.get(1).getRecipeId(), 2);
+
+        // Assert
+        assertEquals(ids(all).subList(2, 3), ids(next));
+        assertEquals(all.get(2).getScore(), next.get(0).getScore());
+    }
+
+    @Test
+    void put_existingRecipe_replacesInstructions() {
+        // Act
+        textSearch.put(3, "Toast the bread and add pasta.");
+
+        // Assert
+        assertEquals(List.of(3L), ids(textSearch.search("toast", null, null, null, 10)));
+        assertEquals(3, textSearch.search("pasta", null, null, null, 10).size());
+    }
+
+    @Test
+    void remove_existingRecipe_removesFromResults() {
+        // Act
+        textSearch.remove(1);
+
+        // Assert
+        assertEquals(List.of(2L), ids(textSearch.search("pasta", null, null, null, 10)));
+        assertTrue(textSearch.search("boil", null, null, null, 10).isEmpty());
+    }
+
+    private List<Long> ids(List<ScoredRecipe> recipes) {
+        return recipes.stream().map(ScoredRecipe::getRecipeId).toList();
+    }
+}
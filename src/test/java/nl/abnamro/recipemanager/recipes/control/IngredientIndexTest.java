@@ -0,0 +1,172 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngredientIndexTest {
+    private IngredientIndex ingredientIndex;
+
+    @BeforeEach
+    void setUp() {
+        ingredientIndex = new IngredientIndex(null);
+        ingredientIndex.put(1, 0, List.of("ingredient1", "ingredient2"));
+        ingredientIndex.put(2, 0, List.of("ingredient2", "ingredient3"));
+        ingredientIndex.put(3, 0, List.of("ingredient4", "ingredient5"));
+    }
+
+    @Test
+    void matchIncluded_multipleIngredients_returnsIntersection() {
+        // Act
+        var ids = ingredientIndex.matchIncluded(List.of("ingredient2", "ingredient3"), List.of());
+
+        // Assert
+        assertEquals(bits(2), ids);
+    }
+
+    @Test
+    void matchIncluded_withExcludedIngredients_returnsDifference() {
+        // Act
+        var ids = ingredientIndex.matchIncluded(List.of("ingredient2"), List.of("ingredient1"));
+
+        // Assert
+        assertEquals(bits(2), ids);
+    }
+
+    @Test
+    void matchIncluded_unknownIngredient_returnsEmpty() {
+        // Act
+        var ids = ingredientIndex.matchIncluded(List.of("ingredient2", "ingredient6"), List.of());
+
+        // Assert
+        assertTrue(ids.isEmpty());
+    }
+
+    @Test
+    void matchAny_multipleIngredients_returnsUnion() {
+        // Act
+        var ids = ingredientIndex.matchAny(List.of("ingredient1", "ingredient5"));
+
+        // Assert
+        assertEquals(bits(1, 3), ids);
+    }
+
+    @Test
+    void put_existingRecipe_replacesIngredients() {
+        // Act
+        ingredientIndex.put(1, 1, List.of("ingredient5"));
+
+        // Assert
+        assertEquals(bits(2), ingredientIndex.matchAny(List.of("ingredient1", "ingredient2")));
+        assertEquals(bits(1, 3), ingredientIndex.matchAny(List.of("ingredient5")));
+    }
+
+    @Test
+    void remove_existingRecipe_removesFromAllPostings() {
+        // Act
+        ingredientIndex.remove(2);
+
+        // Assert
+        assertEquals(bits(1), ingredientIndex.matchAny(List.of("ingredient2", "ingredient3")));
+    }
+
+    @Test
+    void put_olderVersion_isIgnored() {
+        // Arrange
+        ingredientIndex.put(1, 2, List.of("ingredient5"));
+
+        // Act
+        ingredientIndex.put(1, 1, List.of("ingredient1"));
+
+        // Assert
+        assertTrue(ingredientIndex.matchAny(List.of("ingredient1")).isEmpty());
+        assertEquals(bits(1, 3), ingredientIndex.matchAny(List.of("ingredient5")));
+    }
+
+    @Test
+    void put_removedRecipe_isIgnored() {
+        // Arrange
+        ingredientIndex.remove(2);
+
+        // Act
+        ingredientIndex.put(2, 1, List.of("ingredient3"));
+
+        // Assert
+        assertTrue(ingredientIndex.matchAny(List.of("ingredient3")).isEmpty());
+    }
+
+    @Test
+    void put_recipeIdBeyondIndex_throwsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> ingredientIndex.put(Integer.MAX_VALUE, 0, List.of("ingredient1")));
+    }
+
+    @Test
+    void recipeCount_afterPutAndRemove_countsRecipesPerIngredient() {
+        // Act
+        ingredientIndex.put(1, 1, List.of("ingredient2", "ingredient3"));
+        ingredientIndex.put(2, 1, List.of("ingredient2", "ingredient3"));
+        ingredientIndex.remove(3);
+
+        // Assert
+        assertArrayEquals(new int[]{0, 2, 2, 0, 0},
+                Stream.of("ingredient1", "ingredient2", "ingredient3", "ingredient4", "unknown")
+                        .mapToInt(ingredientIndex::recipeCount).toArray());
+    }
+
+    @Test
+    void matchPantry_maxMissing_ranksByMissingThenId() {
+        // Act
+        var matches = ingredientIndex.matchPantry(List.of("ingredient2", "ingredient3", "ingredient6"), 1, 10);
+
+        // Assert
+        assertEquals(List.of(2L, 1L), matches.stream().map(PantryCandidate::getRecipeId).toList());
+        assertEquals(List.of(0, 1), matches.stream().map(PantryCandidate::getMissing).toList());
+    }
+
+    @Test
+    void matchPantry_afterPutAndRemove_usesCurrentIngredients() {
+        // Act
+        ingredientIndex.put(3, 1, List.of("ingredient4"));
+        ingredientIndex.remove(2);
+        ingredientIndex.put(7, 0, List.of("ingredient1"));
+
+        // Assert
+        var matches = ingredientIndex.matchPantry(List.of("ingredient1", "ingredient4"), 0, 10);
+        assertEquals(List.of(3L, 7L), matches.stream().map(PantryCandidate::getRecipeId).toList());
+        assertEquals(List.of(3L), ingredientIndex.matchPantry(List.of("ingredient1", "ingredient4"), 2, 1).stream()
+                .map(PantryCandidate::getRecipeId).toList());
+    }
+
+    @Test
+    void matchPantry_recipeWithoutIngredients_missesNone() {
+        // Arrange
+        ingredientIndex.put(4, 0, List.of());
+        ingredientIndex.put(5, 0, List.of());
+        ingredientIndex.remove(5);
+
+        // Act
+        var matches = ingredientIndex.matchPantry(List.of("ingredient6"), 0, 10);
+
+        // Assert
+        assertEquals(List.of(4L), matches.stream().map(PantryCandidate::getRecipeId).toList());
+        assertEquals(List.of(0), matches.stream().map(PantryCandidate::getMissing).toList());
+    }
+
+    private BitSet bits(int... ids) {
+        var bits = new BitSet();
+        for (var id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+}
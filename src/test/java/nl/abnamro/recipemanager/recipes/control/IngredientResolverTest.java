@@ -0,0 +1,95 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngredientResolverTest {
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    @Mock
+    private IngredientSuggester ingredientSuggester;
+
+    private IngredientResolver ingredientResolver;
+
+    @BeforeEach
+    void setUp() {
+        var recipesProperties = new RecipesProperties();
+        recipesProperties.getIngredients().setCacheSize(2);
+        ingredientResolver = new IngredientResolver(ingredientRepository, ingredientSuggester, recipesProperties);
+    }
+
+    @Test
+    void resolve_existingAndMissingIngredients_insertsMissingInOneBatch() {
+        // Arrange
+        when(ingredientRepository.findByNameIn(Set.of("ingredient1", "ingredient2")))
+                .thenReturn(List.of(new Ingredient(1L, "ingredient1")));
+        when(ingredientRepository.findByNameIn(List.of("ingredient2")))
+                .thenReturn(List.of(new Ingredient(2L, "ingredient2")));
+
+        // Act
+        var ingredients = ingredientResolver.resolve(List.of("ingredient2", "ingredient1", "ingredient2"));
+
+        // Assert
+        assertEquals(List.of("ingredient2", "ingredient1", "ingredient2"), ingredients.stream().map(Ingredient::getName).toList());
+        assertEquals(List.of(2L, 1L, 2L), ingredients.stream().map(Ingredient::getId).toList());
+        verify(ingredientRepository).insertMissing(List.of("ingredient2"));
+        verify(ingredientSuggester).add(List.of("ingredient2"));
+    }
+
+    @Test
+    void resolve_cachedIngredients_doesNotQuery() {
+        // Arrange
+        when(ingredientRepository.findByNameIn(any()))
+                .thenReturn(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
+        ingredientResolver.resolve(List.of("ingredient1", "ingredient2"));
+
+        // Act
+        var ingredients = ingredientResolver.resolve(List.of("ingredient2", "ingredient1"));
+
+        // Assert
+        assertEquals(List.of(2L, 1L), ingredients.stream().map(Ingredient::getId).toList());
+        verify(ingredientRepository, times(1)).findByNameIn(any());
+        verify(ingredientRepository, never()).insertMissing(any());
+    }
+
+    @Test
+    void resolve_cacheFull_evictsLeastRecentlyUsed() {
+        // Arrange
+        when(ingredientRepository.findByNameIn(Set.of("ingredient1", "ingredient2")))
+                .thenReturn(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
+        when(ingredientRepository.findByNameIn(Set.of("ingredient3")))
+                .thenReturn(List.of(new Ingredient(3L, "ingredient3")));
+        when(ingredientRepository.findByNameIn(Set.of("ingredient2")))
+                .thenReturn(List.of(new Ingredient(2L, "ingredient2")));
+        ingredientResolver.resolve(List.of("ingredient1", "ingredient2"));
+        ingredientResolver.resolve(List.of("ingredient1"));
+        ingredientResolver.resolve(List.of("ingredient3"));
+
+        // Act
+        ingredientResolver.resolve(List.of("ingredient1", "ingredient2"));
+
+        // Assert
+        verify(ingredientRepository).findByNameIn(Set.of("ingredient2"));
+        verify(ingredientRepository, times(3)).findByNameIn(any());
+        verifyNoMoreInteractions(ingredientRepository);
+    }
+}
@@ -0,0 +1,78 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngredientSuggesterTest {
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    private IngredientSuggester ingredientSuggester;
+
+    @BeforeEach
+    void setUp() {
+        var ingredientIndex = new IngredientIndex(null);
+        ingredientIndex.put(1, 0, List.of("salt", "Sage"));
+        ingredientIndex.put(2, 0, List.of("Sage", "pepper"));
+        ingredientIndex.put(3, 0, List.of("Sage", "salt"));
+        when(ingredientRepository.findAllNames()).thenReturn(List.of("salt", "Sage", "pepper", "saffron", "Sálvia"));
+        ingredientSuggester = new IngredientSuggester(ingredientRepository, ingredientIndex);
+        ingredientSuggester.rebuild();
+    }
+
+    @Test
+    void suggest_prefix_ranksByRecipeCountThenName() {
+        // Act
+        var suggestions = ingredientSuggester.suggest("Sa", 10);
+
+        // Assert
+        assertEquals(List.of("Sage", "salt", "saffron", "Sálvia"), suggestions.stream().map(IngredientSuggestion::getName).toList());
+        assertEquals(List.of(3, 2, 0, 0), suggestions.stream().map(IngredientSuggestion::getRecipeCount).toList());
+    }
+
+    @Test
+    void suggest_moreMatchesThanLimit_returnsBestRanked() {
+        // Act
+        var suggestions = ingredientSuggester.suggest("sa", 2);
+
+        // Assert
+        assertEquals(List.of("Sage", "salt"), suggestions.stream().map(IngredientSuggestion::getName).toList());
+    }
+
+    @Test
+    void suggest_limitWithinEquallyUsed_keepsAlphabeticallyFirst() {
+        // Act
+        var suggestions = ingredientSuggester.suggest("sa", 3);
+
+        // Assert
+        assertEquals(List.of("Sage", "salt", "saffron"), suggestions.stream().map(IngredientSuggestion::getName).toList());
+    }
+
+    @Test
+    void suggest_accentedPrefix_matchesNormalizedNames() {
+        // Act
+        var suggestions = ingredientSuggester.suggest(" SÁL", 10);
+
+        // Assert
+        assertEquals(List.of("salt", "Sálvia"), suggestions.stream().map(IngredientSuggestion::getName).toList());
+    }
+
+    @Test
+    void add_newName_isSuggested() {
+        // Act
+        ingredientSuggester.add(List.of("pea"));
+
+        // Assert
+        assertEquals(List.of("pepper", "pea"), ingredientSuggester.suggest("pe", 10).stream().map(IngredientSuggestion::getName).toList());
+    }
+}
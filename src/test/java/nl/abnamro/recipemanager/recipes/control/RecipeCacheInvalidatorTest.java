@@ -0,0 +1,44 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeCacheInvalidatorTest {
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(RecipesService.RECIPE_CACHE);
+    private final RecipeCacheInvalidator invalidator = new RecipeCacheInvalidator(cacheManager);
+
+    @Test
+    void onRecipeChanged_readRacingTheCommit_staleRecipeIsNotFound() {
+        // Arrange
+        var cache = cacheManager.getCache(RecipesService.RECIPE_CACHE);
+        var keyOfRacingRead = generate(1L);
+
+        // Act
+        invalidator.onRecipeChanged(RecipeChangedEvent.deleted(1L));
+        cache.put(keyOfRacingRead, new RecipeResponse());
+
+        // Assert
+        assertNull(cache.get(generate(1L)));
+    }
+
+    @Test
+    void onRecipeChanged_otherRecipe_keepsKey() {
+        // Arrange
+        var before = generate(2L);
+
+        // Act
+        invalidator.onRecipeChanged(RecipeChangedEvent.deleted(1L));
+
+        // Assert
+        assertEquals(before, generate(2L));
+    }
+
+    private Object generate(long id) {
+        return invalidator.generate(null, null, id);
+    }
+}
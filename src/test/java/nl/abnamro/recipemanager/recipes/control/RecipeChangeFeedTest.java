@@ -0,0 +1,92 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeChangeFeedTest {
+    @Mock
+    private RecipeChangeLog recipeChangeLog;
+
+    private RecipeChangeFeed recipeChangeFeed;
+
+    @BeforeEach
+    void setUp() {
+        var recipesProperties = new RecipesProperties();
+        recipesProperties.getChanges().setPollInterval(Duration.ofHours(1));
+        recipesProperties.getChanges().setMaxPending(2);
+        recipeChangeFeed = new RecipeChangeFeed(recipeChangeLog, recipesProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recipeChangeFeed.close();
+    }
+
+    @Test
+    void dispatch_slowSubscriber_doesNotHoldUpOthers() throws InterruptedException {
+        // Arrange
+        when(recipeChangeLog.getChanges(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long since = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            var changes = LongStream.rangeClosed(since + 1, Math.min(since + limit, 5)).mapToObj(this::change);
+            return new RecipeChangePage(changes.toList(), 5);
+        });
+        var release = new CountDownLatch(1);
+        var slow = new TestEmitter(release);
+        var fast = new TestEmitter(new CountDownLatch(0));
+
+        // Act
+        recipeChangeFeed.subscribe(slow, 0L);
+        recipeChangeFeed.subscribe(fast, 0L);
+
+        // Assert
+        assertTrue(fast.sent.await(10, TimeUnit.SECONDS));
+        assertEquals(5, slow.sent.getCount());
+        release.countDown();
+        assertTrue(slow.sent.await(10, TimeUnit.SECONDS));
+    }
+
+    private RecipeChange change(long sequence) {
+        return new RecipeChange(sequence, RecipeChangedEvent.Type.DELETED, sequence, Instant.now(), null);
+    }
+
+    private static class TestEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final CountDownLatch sent = new CountDownLatch(5);
+
+        TestEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            sent.countDown();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RecipeChangeLogTest {
+    @Autowired
+    private RecipesService recipesService;
+
+    @Autowired
+    private RecipeChangeLog recipeChangeLog;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // ingredients stay, the resolver caches their ids
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+    }
+
+    @Test
+    void serviceWrites_recordOneChangePerWriteInSequence() {
+        // Arrange
+        var since = recipeChangeLog.getLatestSequence();
+
+        // Act
+        var id = recipesService.addRecipe(request("instructions1", "salt", "pepper")).getId();
+        recipesService.updateRecipe(id, request("instructions2", "basil"));
+        recipesService.deleteRecipe(id);
+
+        // Assert
+        var page = recipeChangeLog.getChanges(since, 10);
+        var changes = page.getChanges();
+        assertEquals(List.of(RecipeChangedEvent.Type.CREATED, RecipeChangedEvent.Type.UPDATED,
+                RecipeChangedEvent.Type.DELETED), changes.stream().map(RecipeChange::getType).toList());
+        assertEquals(List.of(since + 1, since + 2, since + 3),
+                changes.stream().map(RecipeChange::getSequence).toList());
+        assertEquals(List.of("salt", "pepper"), changes.get(0).getRecipe().getIngredients());
+        assertEquals("instructions2", changes.get(1).getRecipe().getInstructions());
+        assertEquals(List.of("basil"), changes.get(1).getRecipe().getIngredients());
+        assertEquals(id, changes.get(2).getRecipeId());
+        assertNull(changes.get(2).getRecipe());
+        assertEquals(since + 3, page.getLatestSequence());
+    }
+
+    @Test
+    void rolledBackWrite_recordsNoChange() {
+        // Arrange
+        var id = recipesService.addRecipe(request("instructions1", "salt")).getId();
+        var since = recipeChangeLog.getLatestSequence();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            recipesService.updateRecipe(id, request("instructions2", "basil"));
+            status.setRollbackOnly();
+        });
+        recipesService.updateRecipe(id, request("instructions3", "basil"));
+
+        // Assert
+        var changes = recipeChangeLog.getChanges(since, 10).getChanges();
+        assertEquals(List.of(since + 1), changes.stream().map(RecipeChange::getSequence).toList());
+        assertEquals("instructions3", changes.get(0).getRecipe().getInstructions());
+    }
+
+    @Test
+    void serviceWrite_withoutCounterRow_seedsCounterFromLastChange() {
+        // Arrange
+        recipesService.addRecipe(request("instructions1", "salt"));
+        var latest = recipeChangeLog.getLatestSequence();
+        jdbcTemplate.update("delete from recipe_change_counter");
+
+        // Act
+        recipesService.addRecipe(request("instructions2", "salt"));
+
+        // Assert
+        var changes = recipeChangeLog.getChanges(latest, 10).getChanges();
+        assertEquals(List.of(latest + 1), changes.stream().map(RecipeChange::getSequence).toList());
+        assertEquals(latest + 1, jdbcTemplate.queryForObject(
+                "select last_sequence from recipe_change_counter where id = 1", Long.class));
+    }
+
+    @Test
+    void purge_changesPastRetention_keepsLastChange() {
+        // Arrange
+        recipesService.addRecipe(request("instructions1", "salt"));
+        recipesService.addRecipe(request("instructions2", "salt"));
+        var latest = recipeChangeLog.getLatestSequence();
+        jdbcTemplate.update("update recipe_change set changed_at = timestamp '2000-01-01 00:00:00'");
+
+        // Act
+        recipeChangeLog.purge();
+
+        // Assert
+        assertNull(recipeChangeLog.getChanges(latest - 2, 10));
+        var changes = recipeChangeLog.getChanges(latest - 1, 10).getChanges();
+        assertEquals(List.of(latest), changes.stream().map(RecipeChange::getSequence).toList());
+        assertTrue(recipeChangeLog.getChanges(latest, 10).getChanges().isEmpty());
+    }
+
+    private static RecipeRequest request(String instructions, String... ingredients) {
+        var request = new RecipeRequest();
+        request.setInstructions(instructions);
+        request.setServings(2);
+        request.setIngredients(List.of(ingredients));
+        return request;
+    }
+}
@@ -0,0 +1,57 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.config.ApplicationConfig;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
+import nl.abnamro.recipemanager.recipes.entity.Ingredient;
+import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecipeMapperTest {
+    private final RecipeMapper recipeMapper = new RecipeMapper();
+
+    private final ModelMapper modelMapper = new ApplicationConfig().modelMapper();
+
+    @Test
+    void toResponse_recipe_matchesModelMapper() {
+        // Arrange
+        var recipe = new Recipe();
+        recipe.setId(1L);
+        recipe.setVegetarian(true);
+        recipe.setServings(4);
+        recipe.setInstructions("instructions");
+        recipe.setIngredients(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
+
+        // Act
+        var recipeResponse = recipeMapper.toResponse(recipe);
+
+        // Assert
+        assertEquals(modelMapper.map(recipe, RecipeResponse.class), recipeResponse);
+    }
+
+    @Test
+    void toRecipe_request_mapsScalarFields() {
+        // Arrange
+        var recipeRequest = new RecipeRequest();
+        recipeRequest.setVegetarian(true);
+        recipeRequest.setServings(4);
+        recipeRequest.setInstructions("instructions");
+        recipeRequest.setIngredients(List.of("ingredient1"));
+
+        // Act
+        var recipe = recipeMapper.toRecipe(recipeRequest);
+
+        // Assert
+        assertNull(recipe.getId());
+        assertEquals(true, recipe.isVegetarian());
+        assertEquals(4, recipe.getServings());
+        assertEquals("instructions", recipe.getInstructions());
+        assertNull(recipe.getIngredients());
+    }
+}
@@ -0,0 +1,104 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntry;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RecipeSearchProjectionTest {
+    @Autowired
+    private RecipesService recipesService;
+
+    @Autowired
+    private RecipeSearchProjection recipeSearchProjection;
+
+    @Autowired
+    private RecipeSearchEntryRepository recipeSearchEntryRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // ingredients stay, the resolver caches their ids
+    @AfterEach
+    void tearDown() {
+        recipeRepository.deleteAll();
+    }
+
+    @Test
+    void serviceWrites_keepEntryInLineWithRecipe() {
+        // Act
+        var id = recipesService.addRecipe(request("instructions1", "salt", "pepper")).getId();
+        var afterAdd = entries();
+        recipesService.updateRecipe(id, request("instructions2", "basil"));
+        var afterUpdate = entries();
+        recipesService.deleteRecipe(id);
+
+        // Assert
+        assertEquals(List.of("salt", "pepper"), afterAdd.get(0).getIngredientNames());
+        assertEquals("instructions2", afterUpdate.get(0).getInstructions());
+        assertEquals(List.of("basil"), afterUpdate.get(0).getIngredientNames());
+        assertEquals(1, afterUpdate.get(0).getIngredientIds().length);
+        assertTrue(entries().isEmpty());
+    }
+
+    @Test
+    void rolledBackWrite_leavesEntryUnchanged() {
+        // Arrange
+        var id = recipesService.addRecipe(request("instructions1", "salt")).getId();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            recipesService.updateRecipe(id, request("instructions2", "basil"));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals("instructions1", entries().get(0).getInstructions());
+        assertEquals(List.of("salt"), entries().get(0).getIngredientNames());
+    }
+
+    @Test
+    void backfill_recipeWithoutEntry_writesEntry() {
+        // Arrange
+        jdbcTemplate.update("insert into recipe (id, version, instructions, is_vegetarian, servings) "
+                + "values (1000, 0, 'seeded', true, 2)");
+
+        // Act
+        recipeSearchProjection.backfill();
+
+        // Assert
+        var entries = entries();
+        assertEquals(List.of(1000L), entries.stream().map(RecipeSearchEntry::getId).toList());
+        assertEquals(List.of(), entries.get(0).getIngredientNames());
+    }
+
+    private List<RecipeSearchEntry> entries() {
+        return transactionTemplate.execute(status -> recipeSearchEntryRepository.scan(null, null, null, null, null, 0L, 100));
+    }
+
+    private static RecipeRequest request(String instructions, String... ingredients) {
+        var request = new RecipeRequest();
+        request.setInstructions(instructions);
+        request.setServings(2);
+        request.setIngredients(List.of(ingredients));
+        return request;
+    }
+}
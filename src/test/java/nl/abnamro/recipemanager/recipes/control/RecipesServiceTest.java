@@ -1,11 +1,18 @@
 package nl.abnamro.recipemanager.recipes.control;
 
-import nl.abnamro.recipemanager.config.ApplicationConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.abnamro.recipemanager.config.RecipesProperties;
+import nl.abnamro.recipemanager.recipes.boundary.RecipePatch;
 import nl.abnamro.recipemanager.recipes.boundary.RecipeRequest;
+import nl.abnamro.recipemanager.recipes.boundary.RecipeResponse;
 import nl.abnamro.recipemanager.recipes.entity.Ingredient;
 import nl.abnamro.recipemanager.recipes.entity.IngredientRepository;
 import nl.abnamro.recipemanager.recipes.entity.Recipe;
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import nl.abnamro.recipemanager.recipes.entity.RecipeFacetRow;
 import nl.abnamro.recipemanager.recipes.entity.RecipeRepository;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntry;
+import nl.abnamro.recipemanager.recipes.entity.RecipeSearchEntryRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -13,42 +20,74 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class RecipesServiceTest {
     @Spy
-    private ModelMapper modelMapper = new ApplicationConfig().modelMapper();
+    private RecipeMapper recipeMapper = new RecipeMapper();
 
     @Mock
     private RecipeRepository recipeRepository;
 
+    @Mock
+    private RecipeSearchEntryRepository recipeSearchEntryRepository;
+
     @Mock
     private IngredientRepository ingredientRepository;
 
+    @Mock
+    private IngredientResolver ingredientResolver;
+
+    @Spy
+    private IngredientIndex ingredientIndex = new IngredientIndex(null);
+
+    @Mock
+    private TextSearch textSearch;
+
+    @Spy
+    private RecipesProperties recipesProperties = new RecipesProperties();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private SearchMetrics searchMetrics = new SearchMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private RecipesService recipesService;
 
     @Test
     void getRecipes_withIncludedIngredients_returnsCorrectRecipes() {
         // Arrange
-        when(recipeRepository.findByIsVegestarianAndServingsAndInstructions(null, null, null))
-                .thenReturn(createRecipes());
+        var allRecipes = indexRecipes(createRecipes());
+        when(recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(List.of(1L), null, null, null))
+                .thenReturn(entries(allRecipes.subList(0, 1)));
 
         var includedIngredients = List.of(
                 "ingredient1"
@@ -57,7 +96,7 @@ class RecipesServiceTest {
         var searchCriteria = new SearchCriteria(null, null, null, includedIngredients, excludedIngredients);
 
         // Act
-        var recipes = recipesService.getRecipes(searchCriteria);
+        var recipes = recipesService.getRecipes(searchCriteria, null, 100).getRecipes();
 
         // Assert
         assertEquals(1, recipes.size());
@@ -67,8 +106,9 @@ class RecipesServiceTest {
     @Test
     void getRecipes_withExcludedIngredients_returnsCorrectRecipes() {
         // Arrange
-        when(recipeRepository.findByIsVegestarianAndServingsAndInstructions(null, null, null))
-                .thenReturn(createRecipes());
+        var allRecipes = indexRecipes(createRecipes());
+        when(recipeSearchEntryRepository.scan(null, null, null, null, null, 0L, 101))
+                .thenReturn(entries(allRecipes));
 
         var includedIngredients = Collections.<String>emptyList();
         var excludedIngredients = List.of(
@@ -77,7 +117,7 @@ class RecipesServiceTest {
         var searchCriteria = new SearchCriteria(null, null, null, includedIngredients, excludedIngredients);
 
         // Act
-        var recipes = recipesService.getRecipes(searchCriteria);
+        var recipes = recipesService.getRecipes(searchCriteria, null, 100).getRecipes();
 
         // Assert
         assertEquals(2, recipes.size());
@@ -85,12 +125,146 @@ class RecipesServiceTest {
         assertEquals("instructions3", recipes.get(1).getInstructions());
     }
 
+    @Test
+    void getRecipes_databaseIngredientFilter_scansWithIngredientCriteria() {
+        // Arrange
+        recipesProperties.getSearch().setIngredientFilter(RecipesProperties.IngredientFilter.DATABASE);
+        var searchCriteria = new SearchCriteria(null, null, null, List.of("ingredient2"), List.of("ingredient1"));
+        when(ingredientRepository.findByNameIn(List.of("ingredient2", "ingredient1"))).thenReturn(List.of(
+                new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
+        when(recipeSearchEntryRepository.scan(isNull(), isNull(), isNull(), aryEq(new long[]{2L}), aryEq(new long[]{1L}),
+                eq(0L), eq(101)))
+                .thenReturn(entries(createRecipes().subList(1, 2)));
+
+        // Act
+        var recipes = recipesService.getRecipes(searchCriteria, null, 100).getRecipes();
+
+        // Assert
+        assertEquals(List.of("instructions2"), recipes.stream().map(RecipeResponse::getInstructions).toList());
+        verify(searchMetrics).record(eq("getRecipes"), eq(1L), eq(1L), anyLong());
+    }
+
+    @Test
+    void getRecipes_moreRecipesThanLimit_returnsPageWithNextAfterId() {
+        // Arrange
+        var allRecipes = indexRecipes(createRecipes());
+        when(recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(List.of(1L, 2L), null, null, null))
+                .thenReturn(entries(allRecipes.subList(0, 2)));
+        var searchCriteria = new SearchCriteria(null, null, null, List.of("ingredient2"), List.of());
+
+        // Act
+        var page = recipesService.getRecipes(searchCriteria, null, 1);
+
+        // Assert
+        assertEquals(1, page.getRecipes().size());
+        assertEquals("instructions1", page.getRecipes().get(0).getInstructions());
+        assertEquals(1L, page.getNextAfterId());
+    }
+
+    @Test
+    void getRecipes_lastPage_returnsNoNextAfterId() {
+        // Arrange
+        var allRecipes = indexRecipes(createRecipes());
+        when(recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(List.of(2L), null, null, null))
+                .thenReturn(entries(allRecipes.subList(1, 2)));
+        var searchCriteria = new SearchCriteria(null, null, null, List.of("ingredient2"), List.of());
+
+        // Act
+        var page = recipesService.getRecipes(searchCriteria, 1L, 1);
+
+        // Assert
+        assertEquals(1, page.getRecipes().size());
+        assertEquals("instructions2", page.getRecipes().get(0).getInstructions());
+        assertNull(page.getNextAfterId());
+    }
+
+    @Test
+    void getFacets_excludedIngredient_countsRemainingRowsAndKeepsTopIngredients() {
+        // Arrange
+        when(ingredientRepository.findByNameIn(List.of("ingredient1"))).thenReturn(List.of(new Ingredient(1L, "ingredient1")));
+        when(recipeSearchEntryRepository.streamFacetRows(isNull(), isNull(), eq(""), aryEq(new long[0]),
+                aryEq(new long[]{1L}), eq(500))).thenReturn(Stream.of(
+                new RecipeFacetRow(true, 4, new long[]{2L, 3L}),
+                new RecipeFacetRow(false, 4, new long[]{2L, 3L, 4L}),
+                new RecipeFacetRow(false, 2, new long[]{4L})));
+        when(ingredientRepository.findAllById(any())).thenReturn(List.of(
+                new Ingredient(2L, "ingredient2"), new Ingredient(3L, "ingredient3")));
+        var searchCriteria = new SearchCriteria(null, null, "", List.of(), List.of("ingredient1"));
+
+        // Act
+        var facets = recipesService.getFacets(searchCriteria, 2);
+
+        // Assert
+        assertEquals(3, facets.getTotal());
+        assertEquals(List.of("ingredient2", "ingredient3"),
+                facets.getIngredients().stream().map(IngredientFacet::getName).toList());
+        assertEquals(List.of(2L, 2L), facets.getIngredients().stream().map(IngredientFacet::getRecipeCount).toList());
+        assertEquals(Map.of(true, 1L, false, 2L), facets.getVegetarian());
+        assertEquals(Map.of(2, 1L, 4, 2L), facets.getServings());
+    }
+
+    @Test
+    void searchRecipes_moreMatchesThanLimit_returnsRankedPageWithNextScore() {
+        // Arrange
+        var allRecipes = createRecipes();
+        when(textSearch.search("instructions", null, null, null, 2)).thenReturn(List.of(
+                new ScoredRecipe(3L, 2.0), new ScoredRecipe(1L, 1.0)));
+        when(recipeRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(List.of(3L, 1L), null, null, null))
+                .thenReturn(List.of(allRecipes.get(0), allRecipes.get(2)));
+        var searchCriteria = new SearchCriteria(null, null, null, List.of(), List.of());
+
+        // Act
+        var page = recipesService.searchRecipes("instructions", searchCriteria, null, null, null, 1);
+
+        // Assert
+        assertEquals(1, page.getRecipes().size());
+        assertEquals("instructions3", page.getRecipes().get(0).getInstructions());
+        assertEquals(3L, page.getNextAfterId());
+        assertEquals(2.0, page.getNextAfterScore());
+    }
+
+    @Test
+    void searchRecipes_withCursor_continuesAfterCursor() {
+        // Arrange
+        var allRecipes = createRecipes();
+        when(textSearch.search("instructions", null, 1.0, 1L, 11)).thenReturn(List.of(new ScoredRecipe(2L, 1.0)));
+        when(recipeRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(List.of(2L), null, null, null))
+                .thenReturn(List.of(allRecipes.get(1)));
+        var searchCriteria = new SearchCriteria(null, null, null, List.of(), List.of());
+
+        // Act
+        var page = recipesService.searchRecipes("instructions", searchCriteria, null, 1.0, 1L, 10);
+
+        // Assert
+        assertEquals(1, page.getRecipes().size());
+        assertEquals("instructions2", page.getRecipes().get(0).getInstructions());
+        assertNull(page.getNextAfterId());
+    }
+
+    @Test
+    void streamRecipes_matchingRecipes_mapsAndDetachesEachRecipe() {
+        // Arrange
+        var allRecipes = createRecipes();
+        var searchCriteria = new SearchCriteria(null, null, null, List.of(), List.of("ingredient1"));
+        when(recipeRepository.stream(null, null, null, List.of(), List.of("ingredient1"), 500)).thenReturn(allRecipes.subList(1, 3).stream());
+        var recipes = new ArrayList<RecipeResponse>();
+
+        // Act
+        recipesService.streamRecipes(searchCriteria, recipes::add);
+
+        // Assert
+        assertEquals(2, recipes.size());
+        assertEquals("instructions2", recipes.get(0).getInstructions());
+        verify(recipeRepository).detach(allRecipes.get(1));
+        verify(recipeRepository).detach(allRecipes.get(2));
+    }
+
     @Test
     void addRecipe_existingRecipe_returnsAddedRecipe() {
         // Arrange
         when(recipeRepository.save(any())).thenReturn(createRecipeWithId());
-        when(ingredientRepository.findByName("ingredient1")).thenReturn(Optional.of(new Ingredient(1L, "ingredient1")));
-        when(ingredientRepository.save(new Ingredient("ingredient2"))).thenReturn(new Ingredient(1L, "ingredient2"));
+        when(ingredientResolver.resolve(List.of("ingredient1", "ingredient2")))
+                .thenReturn(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
 
         // Act
         var addedRecipe = recipesService.addRecipe(createRecipeRequest());
@@ -126,17 +300,17 @@ class RecipesServiceTest {
                 new Ingredient("ingredient3")
         ));
 
-        when(recipeRepository.findById(1L)).thenReturn(Optional.of(oldRecipe));
-        when(recipeRepository.save(any())).thenReturn(newRecipe);
-        when(ingredientRepository.findByName("ingredient1")).thenReturn(Optional.of(new Ingredient(1L, "ingredient1")));
-        when(ingredientRepository.save(new Ingredient("ingredient2"))).thenReturn(new Ingredient(1L, "ingredient2"));
+        when(recipeRepository.findWithIngredientsById(1L)).thenReturn(Optional.of(oldRecipe));
+        when(recipeRepository.saveAndFlush(any())).thenReturn(newRecipe);
+        when(ingredientResolver.resolve(List.of("ingredient1", "ingredient2")))
+                .thenReturn(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
 
         // Act
         var updatedRecipe = recipesService.updateRecipe(1, createRecipeRequest());
 
         // Assert
         ArgumentCaptor<Recipe> argument = ArgumentCaptor.forClass(Recipe.class);
-        verify(recipeRepository).save(argument.capture());
+        verify(recipeRepository).saveAndFlush(argument.capture());
         assertEquals("instructions", argument.getValue().getInstructions());
         assertEquals("ingredient1", argument.getValue().getIngredients().get(0).getName());
         assertEquals("ingredient2", argument.getValue().getIngredients().get(1).getName());
@@ -147,6 +321,87 @@ class RecipesServiceTest {
         assertNotNull(updatedRecipe.getId());
     }
 
+    @Test
+    void updateRecipe_expectedVersion_updatesConditionallyAndPublishesChange() {
+        // Arrange
+        when(recipeRepository.updateIfVersion(1L, 3L, true, 0, "instructions")).thenReturn(1);
+        when(ingredientResolver.resolve(List.of("ingredient1", "ingredient2")))
+                .thenReturn(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(2L, "ingredient2")));
+
+        // Act
+        var updatedRecipe = recipesService.updateRecipe(1, 3, createRecipeRequest());
+
+        // Assert
+        verify(recipeRepository).deleteIngredients(1L);
+        verify(recipeRepository).insertIngredients(1L, List.of(1L, 2L));
+        ArgumentCaptor<RecipeChangedEvent> event = ArgumentCaptor.forClass(RecipeChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(RecipeChangedEvent.Type.UPDATED, event.getValue().getType());
+        assertEquals(List.of("ingredient1", "ingredient2"), event.getValue().getIngredientNames());
+        assertEquals(4, updatedRecipe.getVersion());
+        assertEquals(List.of("ingredient1", "ingredient2"), updatedRecipe.getIngredients());
+    }
+
+    @Test
+    void updateRecipe_otherVersion_throwsOptimisticLockingFailure() {
+        // Arrange
+        when(recipeRepository.updateIfVersion(1L, 3L, true, 0, "instructions")).thenReturn(0);
+        when(recipeRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> recipesService.updateRecipe(1, 3, createRecipeRequest()));
+        verify(ingredientResolver, never()).resolve(any());
+    }
+
+    @Test
+    void patchRecipe_ingredientDeltas_appliesTargetedChangesAndPublishesChange() {
+        // Arrange
+        var patch = new RecipePatch();
+        patch.setServings(4);
+        patch.setAddIngredients(List.of("ingredient3", "ingredient3"));
+        patch.setRemoveIngredients(List.of("ingredient2"));
+        when(recipeRepository.updateFields(1L, null, null, 4, null)).thenReturn(1);
+        when(ingredientResolver.resolve(List.of("ingredient3"))).thenReturn(List.of(new Ingredient(3L, "ingredient3")));
+        var recipe = createRecipeWithId();
+        recipe.setIngredients(List.of(new Ingredient(1L, "ingredient1"), new Ingredient(3L, "ingredient3")));
+        when(recipeRepository.findWithIngredientsById(1L)).thenReturn(Optional.of(recipe));
+
+        // Act
+        var patchedRecipe = recipesService.patchRecipe(1, null, patch);
+
+        // Assert
+        verify(recipeRepository).deleteIngredientsByName(1L, List.of("ingredient2"));
+        verify(recipeRepository).insertMissingIngredients(1L, List.of(3L));
+        verify(recipeRepository, never()).deleteIngredients(anyLong());
+        ArgumentCaptor<RecipeChangedEvent> event = ArgumentCaptor.forClass(RecipeChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(RecipeChangedEvent.Type.UPDATED, event.getValue().getType());
+        assertEquals(List.of("ingredient1", "ingredient3"), patchedRecipe.getIngredients());
+    }
+
+    @Test
+    void patchRecipe_otherVersion_throwsOptimisticLockingFailure() {
+        // Arrange
+        var patch = new RecipePatch();
+        patch.setAddIngredients(List.of("ingredient3"));
+        when(recipeRepository.updateFields(1L, 3L, null, null, null)).thenReturn(0);
+        when(recipeRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> recipesService.patchRecipe(1, 3L, patch));
+        verify(ingredientResolver, never()).resolve(any());
+    }
+
+    @Test
+    void patchRecipe_nonExistingRecipe_returnsNull() {
+        // Act
+        var patchedRecipe = recipesService.patchRecipe(1, null, new RecipePatch());
+
+        // Assert
+        assertNull(patchedRecipe);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void deleteRecipe_nonExistingRecipe_returnsFalse() {
         // Act
@@ -154,22 +409,42 @@ class RecipesServiceTest {
 
         // Assert
         assertFalse(deleted);
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void deleteRecipe_existingRecipe_returnsTrue() {
         // Arrange
-        var recipe = createRecipeWithId();
-        when(recipeRepository.findById(1L)).thenReturn(Optional.of(recipe));
+        when(recipeRepository.deleteRecipes(List.of(1L))).thenReturn(1);
 
         // Act
         var deleted = recipesService.deleteRecipe(1);
 
         // Assert
-        verify(recipeRepository).delete(recipe);
+        verify(recipeRepository).deleteIngredientsOfRecipes(List.of(1L));
+        verify(recipeRepository, never()).findById(anyLong());
+        verify(eventPublisher).publishEvent(any(RecipeChangedEvent.class));
         assertTrue(deleted);
     }
 
+    @Test
+    void deleteRecipes_matchingRecipes_deletesByIdsAndPublishesChanges() {
+        // Arrange
+        var searchCriteria = new SearchCriteria(null, null, "", List.of("ingredient1"), null);
+        when(recipeRepository.findIdsForUpdate(null, null, "", List.of("ingredient1"), null)).thenReturn(List.of(1L, 2L));
+        when(recipeRepository.deleteRecipes(List.of(1L, 2L))).thenReturn(2);
+
+        // Act
+        var deleted = recipesService.deleteRecipes(searchCriteria);
+
+        // Assert
+        verify(recipeRepository).deleteIngredientsOfRecipes(List.of(1L, 2L));
+        ArgumentCaptor<RecipeChangedEvent> events = ArgumentCaptor.forClass(RecipeChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(List.of(1L, 2L), events.getAllValues().stream().map(RecipeChangedEvent::getRecipeId).toList());
+        assertEquals(2, deleted);
+    }
+
     @Test
     void getRecipe_nonExistingRecipe_returnsNull() {
         // Act
@@ -182,7 +457,7 @@ class RecipesServiceTest {
     @Test
     void getRecipe_existingRecipe_returnsRecipe() {
         // Arrange
-        when(recipeRepository.findById(1L)).thenReturn(Optional.of(createRecipeWithId()));
+        when(recipeRepository.findWithIngredientsById(1L)).thenReturn(Optional.of(createRecipeWithId()));
 
         // Act
         var recipe = recipesService.getRecipe(1);
@@ -209,10 +484,10 @@ class RecipesServiceTest {
         recipe.setVegetarian(true);
         recipe.setServings(0);
         recipe.setInstructions("instructions");
-        recipe.setIngredients(Arrays.asList(
+        recipe.setIngredients(new ArrayList<>(Arrays.asList(
                 new Ingredient("ingredient1"),
                 new Ingredient("ingredient2")
-        ));
+        )));
         return recipe;
     }
 
@@ -222,10 +497,29 @@ class RecipesServiceTest {
         return recipe;
     }
 
+    private List<Recipe> indexRecipes(List<Recipe> recipes) {
+        recipes.forEach(recipe -> ingredientIndex.put(recipe.getId(), recipe.getVersion(),
+                recipe.getIngredients().stream().map(Ingredient::getName).toList()));
+        return recipes;
+    }
+
+    private List<RecipeSearchEntry> entries(List<Recipe> recipes) {
+        return recipes.stream().map(recipe -> {
+            var entry = new RecipeSearchEntry();
+            entry.setId(recipe.getId());
+            entry.setVegetarian(recipe.isVegetarian());
+            entry.setServings(recipe.getServings());
+            entry.setInstructions(recipe.getInstructions());
+            entry.setIngredientNames(recipe.getIngredients().stream().map(Ingredient::getName).toList());
+            return entry;
+        }).toList();
+    }
+
     private List<Recipe> createRecipes() {
         var recipes = new ArrayList<Recipe>();
 
         var recipe = new Recipe();
+        recipe.setId(1L);
         recipe.setVegetarian(true);
         recipe.setInstructions("instructions1");
         recipe.setServings(3);
@@ -236,6 +530,7 @@ class RecipesServiceTest {
         recipes.add(recipe);
 
         var recipe2 = new Recipe();
+        recipe2.setId(2L);
         recipe2.setVegetarian(false);
         recipe2.setInstructions("instructions2");
         recipe2.setServings(5);
@@ -246,6 +541,7 @@ class RecipesServiceTest {
         recipes.add(recipe2);
 
         var recipe3 = new Recipe();
+        recipe3.setId(3L);
         recipe3.setVegetarian(false);
         recipe3.setInstructions("instructions3");
         recipe3.setServings(0);
@@ -0,0 +1,73 @@
+package nl.abnamro.recipemanager.recipes.control;
+
+import nl.abnamro.recipemanager.recipes.entity.RecipeChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.transaction.event.TransactionalApplicationListenerMethodAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SearchCacheKeyGeneratorTest {
+    private final SearchCacheKeyGenerator keyGenerator = new SearchCacheKeyGenerator();
+
+    @Test
+    void generate_equivalentCriteria_returnsEqualKeys() {
+        // Act
+        var key1 = generate(new SearchCriteria(true, 4, "bake ", List.of("salt", "pepper"), List.of("nuts")));
+        var key2 = generate(new SearchCriteria(true, 4, " bake", List.of("pepper", "salt", "pepper"), List.of("nuts")));
+
+        // Assert
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), key2.hashCode());
+    }
+
+    @Test
+    void generate_differentCriteria_returnsDifferentKeys() {
+        // Act
+        var key1 = generate(new SearchCriteria(true, 4, "bake", List.of("salt"), List.of("pepper")));
+        var key2 = generate(new SearchCriteria(true, 4, "bake", List.of("pepper"), List.of("salt")));
+
+        // Assert
+        assertNotEquals(key1, key2);
+    }
+
+    @Test
+    void generate_afterRecipeChanged_returnsNewKey() {
+        // Arrange
+        var searchCriteria = new SearchCriteria(null, null, "", List.of(), List.of());
+        var before = generate(searchCriteria);
+
+        // Act
+        keyGenerator.onRecipeChanged(RecipeChangedEvent.deleted(1L));
+
+        // Assert
+        assertNotEquals(before, generate(searchCriteria));
+    }
+
+    @Test
+    void onRecipeChanged_afterCommit_runsAfterIngredientIndex() throws Exception {
+        // Arrange
+        var generationListener = listener(SearchCacheKeyGenerator.class);
+        var indexListener = listener(IngredientIndex.class);
+        var listeners = new ArrayList<>(List.of(generationListener, indexListener));
+
+        // Act
+        AnnotationAwareOrderComparator.sort(listeners);
+
+        // Assert
+        assertEquals(List.of(indexListener, generationListener), listeners);
+    }
+
+    private static TransactionalApplicationListenerMethodAdapter listener(Class<?> type) throws NoSuchMethodException {
+        return new TransactionalApplicationListenerMethodAdapter(type.getSimpleName(), type,
+                type.getMethod("onRecipeChanged", RecipeChangedEvent.class));
+    }
+
+    private Object generate(SearchCriteria searchCriteria) {
+        return keyGenerator.generate(null, null, searchCriteria, null, 100);
+    }
+}
@@ -0,0 +1,114 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RecipeRepositoryTest {
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientRepository ingredientRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        var ingredient1 = ingredientRepository.save(new Ingredient("ingredient1"));
+        var ingredient2 = ingredientRepository.save(new Ingredient("ingredient2"));
+        var ingredient3 = ingredientRepository.save(new Ingredient("ingredient3"));
+        ids = List.of(createRecipe(true, 3, "instructions1", ingredient1, ingredient2).getId(),
+                createRecipe(false, 5, "instructions2", ingredient2, ingredient3).getId(),
+                createRecipe(false, 0, "instructions3", ingredient3).getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findIdsForUpdate_includedIngredients_returnsOnlyMatchingRows() {
+        // Act
+        var found = recipeRepository.findIdsForUpdate(null, null, "", List.of("ingredient2", "ingredient3"), List.of());
+
+        // Assert
+        assertEquals(List.of(ids.get(1)), found);
+        assertEquals(found.size(), fetchedRows());
+    }
+
+    @Test
+    void findIdsForUpdate_excludedIngredients_returnsOnlyMatchingRows() {
+        // Act
+        var found = recipeRepository.findIdsForUpdate(null, null, "", List.of(), List.of("ingredient1"));
+
+        // Assert
+        assertEquals(List.of(ids.get(1), ids.get(2)), found.stream().sorted().toList());
+        assertEquals(found.size(), fetchedRows());
+    }
+
+    @Test
+    void findIdsForUpdate_allFilters_returnsOnlyMatchingRows() {
+        // Act
+        var found = recipeRepository.findIdsForUpdate(false, 5, "tions", List.of("ingredient3"), List.of("ingredient1"));
+
+        // Assert
+        assertEquals(List.of(ids.get(1)), found);
+        assertEquals(found.size(), fetchedRows());
+    }
+
+    @Test
+    void findIdsForUpdate_includedIngredientLinkedTwice_requiresEveryIngredient() {
+        // Arrange
+        var ingredient1 = ingredientRepository.findByNameIn(List.of("ingredient1")).get(0);
+        createRecipe(true, 2, "instructions4", ingredient1, ingredient1);
+        entityManager.flush();
+
+        // Act
+        var found = recipeRepository.findIdsForUpdate(null, null, null, List.of("ingredient1", "ingredient2"), null);
+
+        // Assert
+        assertEquals(List.of(ids.get(0)), found);
+    }
+
+    @Test
+    void findIdsForUpdate_noFilters_returnsAll() {
+        // Act
+        var found = recipeRepository.findIdsForUpdate(null, null, null, null, null);
+
+        // Assert
+        assertEquals(3, found.size());
+        assertEquals(found.size(), fetchedRows());
+    }
+
+    private long fetchedRows() {
+        return Arrays.stream(statistics.getQueries())
+                .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionRowCount())
+                .sum();
+    }
+
+    private Recipe createRecipe(boolean isVegetarian, int servings, String instructions, Ingredient... ingredients) {
+        var recipe = new Recipe();
+        recipe.setVegetarian(isVegetarian);
+        recipe.setServings(servings);
+        recipe.setInstructions(instructions);
+        recipe.setIngredients(Arrays.asList(ingredients));
+        return recipeRepository.save(recipe);
+    }
+}
@@ -0,0 +1,110 @@
+package nl.abnamro.recipemanager.recipes.entity;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class RecipeSearchEntryRepositoryTest {
+    @Autowired
+    private RecipeSearchEntryRepository recipeSearchEntryRepository;
+
+    @BeforeEach
+    void setUp() {
+        write(RecipeChangedEvent.Type.CREATED, 1L, true, 3, "instructions1", List.of(12L, 10L), List.of("salt", "basil"));
+        write(RecipeChangedEvent.Type.CREATED, 2L, false, 5, "instructions2", List.of(11L), List.of("pepper"));
+        write(RecipeChangedEvent.Type.CREATED, 3L, false, 5, "instructions3", List.of(), List.of());
+    }
+
+    @Test
+    void write_created_storesSortedIdsAndNamesInRecipeOrder() {
+        // Act
+        var entries = recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(
+                List.of(1L), null, null, "");
+
+        // Assert
+        assertEquals(1, entries.size());
+        assertArrayEquals(new long[]{10L, 12L}, entries.get(0).getIngredientIds());
+        assertEquals(List.of("salt", "basil"), entries.get(0).getIngredientNames());
+    }
+
+    @Test
+    void write_updatedAndDeleted_replacesAndRemovesEntries() {
+        // Act
+        write(RecipeChangedEvent.Type.UPDATED, 1L, true, 4, "changed", List.of(11L), List.of("pepper"));
+        recipeSearchEntryRepository.write(List.of(RecipeChangedEvent.deleted(2L)));
+
+        // Assert
+        var entries = recipeSearchEntryRepository.scan(null, null, null, null, null, 0L, 100);
+        assertEquals(List.of(1L, 3L), entries.stream().map(RecipeSearchEntry::getId).toList());
+        assertEquals("changed", entries.get(0).getInstructions());
+        assertEquals(List.of("pepper"), entries.get(0).getIngredientNames());
+    }
+
+    @Test
+    void write_updatedWithoutEntryAndManyIngredients_insertsWholeEntry() {
+        // Arrange
+        var ingredientIds = LongStream.rangeClosed(1, 2000).boxed().toList();
+        var ingredientNames = ingredientIds.stream().map(id -> "ingredient" + id).toList();
+
+        // Act
+        write(RecipeChangedEvent.Type.UPDATED, 4L, true, 2, "instructions4", ingredientIds, ingredientNames);
+
+        // Assert
+        var entries = recipeSearchEntryRepository.findByIdsAndIsVegetarianAndServingsAndInstructions(
+                List.of(4L), null, null, "");
+        assertEquals(2000, entries.get(0).getIngredientIds().length);
+        assertEquals(ingredientNames, entries.get(0).getIngredientNames());
+    }
+
+    @Test
+    void scan_scalarFiltersAfterId_returnsMatchingEntriesInIdOrder() {
+        // Act
+        var entries = recipeSearchEntryRepository.scan(false, 5, "instructions", null, null, 0L, 100);
+        var nextPage = recipeSearchEntryRepository.scan(false, 5, "instructions", null, null, 2L, 1);
+
+        // Assert
+        assertEquals(List.of(2L, 3L), entries.stream().map(RecipeSearchEntry::getId).toList());
+        assertEquals(List.of(3L), nextPage.stream().map(RecipeSearchEntry::getId).toList());
+    }
+
+    @Test
+    void scan_ingredientIds_returnsEntriesWithAllIncludedAndNoExcluded() {
+        // Arrange
+        write(RecipeChangedEvent.Type.CREATED, 4L, true, 3, "instructions4", List.of(10L, 11L, 12L),
+                List.of("basil", "pepper", "salt"));
+
+        // Act
+        var entries = recipeSearchEntryRepository.scan(null, null, null, new long[]{12L, 10L}, new long[]{11L}, 0L, 100);
+
+        // Assert
+        assertEquals(List.of(1L), entries.stream().map(RecipeSearchEntry::getId).toList());
+    }
+
+    @Test
+    void streamFacetRows_ingredientIds_streamsMatchingRows() {
+        // Act
+        List<RecipeFacetRow> rows;
+        try (var stream = recipeSearchEntryRepository.streamFacetRows(false, null, null, new long[0], new long[]{11L}, 10)) {
+            rows = stream.toList();
+        }
+
+        // Assert
+        assertEquals(1, rows.size());
+        assertEquals(5, rows.get(0).servings());
+        assertArrayEquals(new long[0], rows.get(0).ingredientIds());
+    }
+
+    private void write(RecipeChangedEvent.Type type, long id, boolean isVegetarian, int servings, String instructions,
+                       List<Long> ingredientIds, List<String> ingredientNames) {
+        recipeSearchEntryRepository.write(List.of(new RecipeChangedEvent(type, id, 0, isVegetarian, servings,
+                instructions, ingredientIds, ingredientNames)));
+    }
+}